@@ -12,12 +12,15 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -55,6 +58,7 @@ import nl.tue.s2id90.game.Game;
 import nl.tue.s2id90.game.Game.Result;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchStatistics;
 import nl.tue.win.util.Timer;
 
 /**
@@ -79,6 +83,13 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     protected List<CompetitionListener<M>> listeners = new ArrayList<>();
     private Competition competition;
     
+    /** per player in the competition, creates the player of a single game,
+     * see PlayerProvider.newPlayer; Game does not know the type of its players. */
+    private final Map<Player<?, ?>, Supplier<Competitor>> gamePlayers = new IdentityHashMap<>();
+    
+    /** players of the current game; new instances if their provider creates them. */
+    private Competitor white, black;
+    
     /**
      * Creates new form CompetitionGUI
      * @param selector predicate that only results in true if the argument plugin is a suitable plugin
@@ -415,6 +426,8 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
      */
     public void startGame(Game game) {
         currentGame = game;
+        white = gamePlayers.get(game.first).get();
+        black = gamePlayers.get(game.second).get();
         System.err.println("white="+game.first.toString());
         System.err.println("black="+game.second.toString());
         
@@ -438,8 +451,8 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
             updateGUI(game,gs); updateGUI();
             Player currentPlayer;
             if (gs.isWhiteToMove())
-                currentPlayer  =  game.first;
-            else currentPlayer = game.second;
+                currentPlayer  =  white;
+            else currentPlayer = black;
             
             if (currentPlayer.isHuman()) {
                 //getHumanMove(game, gs); done via GameGUIListener
@@ -471,6 +484,7 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
             @Override
             public void done(M m) {
                 timer.stop();
+                showStatistics(currentPlayer);
                 
                 // sleep at least MIN DELAY ms before doing the move on the board
                 long dt = timer.elapsedTimeInMilliSeconds();
@@ -499,6 +513,14 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         searchTask.execute();
         return searchTask;
     }
+    
+    /** shows the search statistics of player in the status label. */
+    private void showStatistics(Player<?, ?> player) {
+        SearchStatistics statistics = player.getStatistics();
+        statusLabel.setText(statistics == null ? "   -   " : statistics.toShortString());
+        statusLabel.setToolTipText(statistics == null ? null
+                : "<html>" + player.getName() + ":<br>" + statistics.toString().replace(", ", "<br>"));
+    }
     //</editor-fold>
      
     private int getResult(Identity p) {
@@ -514,12 +536,17 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     }
     
     //<editor-fold defaultstate="collapsed" desc="update CompetitionGUI methods">
+    /** @return value as text, or "-" if the player has no value (null). */
+    private static String valueText(Integer value) {
+        return value == null ? "-" : value.toString();
+    }
+    
     private void updateGUI(Game game, S gs) {
         if (game!=null) {
             boolean whiteIsHuman = game.first.isHuman();
             boolean blackIsHuman = game.second.isHuman();
-            whiteValueLabel.setText(whiteIsHuman?"":""+game.first.getValue());
-            blackValueLabel.setText(blackIsHuman?"":""+game.second.getValue());
+            whiteValueLabel.setText(whiteIsHuman?"":valueText(white.getValue()));
+            blackValueLabel.setText(blackIsHuman?"":valueText(black.getValue()));
         }
         gameGUI.show(gs);
         updateWhoIsToMove(gs);
@@ -647,6 +674,9 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
 
     private void createSchedule() {
         List<P> plugins = getPlugins(pluginFolders);
+        gamePlayers.clear();
+        plugins.forEach(p -> p.getPlayers().forEach(c -> gamePlayers.put(c,
+                () -> p.newPlayer(c, Runtime.getRuntime().availableProcessors()))));
         List<Competitor> players = SelectionPanel.showDialog(this, plugins);
         //List<P> players = PluginSelectionPanel.showDialog(this,plugins);
         
@@ -34,4 +34,26 @@ public class PlayerProvider<P extends Player> implements Provider {
     public List<P> getPlayers() {
         return null;
     }
+    
+    /**
+     * Players keep the state of their search in fields, so a player can
+     * not play two games at the same time. Override this method (and
+     * createsNewPlayers) to give every game its own instance.
+     * @param player  one of the players of getPlayers()
+     * @param threads number of threads the player may use in this game: the
+     *                cores divided by the number of games played at the same time
+     * @return the player that plays a single game for player; this
+     *         implementation returns player itself, shared by all games.
+     */
+    public P newPlayer(P player, int threads) {
+        return player;
+    }
+    
+    /**
+     * @return whether or not newPlayer returns a new instance for every game;
+     *         default false.
+     */
+    public boolean createsNewPlayers() {
+        return false;
+    }
 }
\ No newline at end of file
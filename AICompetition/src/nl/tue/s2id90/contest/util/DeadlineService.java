@@ -0,0 +1,140 @@
+package nl.tue.s2id90.contest.util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs actions at a deadline, measured with System.nanoTime. Deadlines that
+ * are cancelled are removed at once, so a long tournament does not collect
+ * stopped tasks. For every deadline that fires, it records how late that was.
+ * @see TimedSearchTask
+ */
+public final class DeadlineService {
+    private static final DeadlineService INSTANCE = new DeadlineService();
+
+    /** one daemon thread; it does not keep the JVM alive. */
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder totalLateness = new LongAdder();
+    private final LongAccumulator maxLateness = new LongAccumulator(Math::max, 0);
+
+    private DeadlineService() {
+        scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "deadline-service");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /** @return the deadline service shared by all search tasks. */
+    public static DeadlineService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * runs action at the given time.
+     * @param deadlineNanos time in System.nanoTime() units
+     * @param action what to do at the deadline
+     * @return the scheduled deadline, which can be cancelled
+     */
+    public Deadline schedule(long deadlineNanos, Runnable action) {
+        Deadline d = new Deadline(deadlineNanos);
+        d.future = scheduler.schedule(() -> {
+            d.lateness.set(Math.max(0, System.nanoTime() - deadlineNanos));
+            fired.increment();
+            totalLateness.add(d.lateness.get());
+            maxLateness.accumulate(d.lateness.get());
+            action.run();
+        }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        return d;
+    }
+
+    /**
+     * runs action after the given delay.
+     * @param delay time from now
+     * @param unit unit of delay
+     * @param action what to do at the deadline
+     * @return the scheduled deadline, which can be cancelled
+     */
+    public Deadline scheduleAfter(long delay, TimeUnit unit, Runnable action) {
+        return schedule(System.nanoTime() + unit.toNanos(delay), action);
+    }
+
+    /** @return number of deadlines that fired. */
+    public long getFiredCount() {
+        return fired.sum();
+    }
+
+    /** @return number of deadlines that were cancelled before they fired. */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /** @return the largest lateness of a deadline in nanoseconds. */
+    public long getMaxLatenessNanos() {
+        return maxLateness.get();
+    }
+
+    /** @return the mean lateness of the deadlines that fired in nanoseconds. */
+    public long getMeanLatenessNanos() {
+        long n = fired.sum();
+        return n == 0 ? 0 : totalLateness.sum() / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("deadlines: %d fired, %d cancelled, lateness mean %.3f ms, max %.3f ms",
+                getFiredCount(), getCancelledCount(),
+                getMeanLatenessNanos() / 1e6, getMaxLatenessNanos() / 1e6);
+    }
+
+    /** a scheduled action. */
+    public final class Deadline {
+        private final long deadlineNanos;
+        private final AtomicLong lateness = new AtomicLong(-1);
+        private volatile ScheduledFuture<?> future;
+
+        private Deadline(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /** @return the deadline in System.nanoTime() units. */
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        /** @return nanoseconds left until the deadline; negative when it has passed. */
+        public long remainingNanos() {
+            return deadlineNanos - System.nanoTime();
+        }
+
+        /**
+         * cancels the action, unless it already started.
+         * @return whether or not the action was cancelled
+         */
+        public boolean cancel() {
+            boolean result = future.cancel(false);
+            if (result) cancelled.increment();
+            return result;
+        }
+
+        /** @return whether or not the action started. */
+        public boolean hasFired() {
+            return lateness.get() >= 0;
+        }
+
+        /** @return how many nanoseconds after the deadline the action started;
+         * -1 if it did not start (yet).
+         */
+        public long getLatenessNanos() {
+            return lateness.get();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package nl.tue.s2id90.contest.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+
+/**
+ * Runs the search of a SearchTask and hands over its result.
+ * @see SearchTask#execute()
+ */
+public interface SearchExecutor {
+
+    /**
+     * runs search and then calls done with its result, or with null if
+     * search throws an exception.
+     * @param <M> Move
+     * @param search computes a move
+     * @param done   receives the move
+     */
+    <M> void execute(Callable<M> search, Consumer<M> done);
+
+    /**
+     * searches in a SwingWorker thread and calls done on the event dispatch
+     * thread, so done can update the GUI. SwingWorker shares a pool of at
+     * most 10 threads.
+     */
+    SearchExecutor SWING_WORKER = new SearchExecutor() {
+        @Override
+        public <M> void execute(Callable<M> search, Consumer<M> done) {
+            new SwingWorker<M, Void>() {
+                @Override
+                protected M doInBackground() throws Exception {
+                    return search.call();
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        done.accept(get()); // gets computed move
+                    } catch (InterruptedException | ExecutionException ex) {
+                        System.err.println("Exception in search task: " + ex);
+                        ex.printStackTrace();
+                        done.accept(null);
+                    }
+                }
+            }.execute();
+        }
+    };
+
+    /**
+     * searches in the thread that calls execute, and calls done in that
+     * thread before execute returns. Meant for headless use, where the
+     * caller, e.g. a game in a tournament, already has its own thread.
+     */
+    SearchExecutor CALLER = of(Runnable::run);
+
+    /**
+     * @param executor runs the searches
+     * @return search executor that searches in a thread of executor and calls
+     *         done in the same thread.
+     */
+    static SearchExecutor of(Executor executor) {
+        return new SearchExecutor() {
+            @Override
+            public <M> void execute(Callable<M> search, Consumer<M> done) {
+                executor.execute(() -> {
+                    M m;
+                    try {
+                        m = search.call();
+                    } catch (Exception ex) {
+                        System.err.println("Exception in search task: " + ex);
+                        ex.printStackTrace();
+                        m = null;
+                    }
+                    done.accept(m);
+                });
+            }
+        };
+    }
+}
@@ -1,9 +1,8 @@
 package nl.tue.s2id90.contest.util;
 
-import java.util.concurrent.ExecutionException;
-import javax.swing.SwingWorker;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.TimeBudget;
 
 /**
  * class
@@ -14,28 +13,58 @@ import nl.tue.s2id90.game.Player;
  */
 public abstract class SearchTask<M,U,S extends GameState<M>>
 {  
-    private SwingWorker<M,U> worker;
+    private final SearchExecutor executor;
     private final Player<M,S> player;
     private final S state;
+    private volatile boolean finished = false;
 
     /**
+     * Search task that runs in a SwingWorker, and calls done() on the event
+     * dispatch thread.
      * @param player for whom to perform a search for the best move in state s
      * @param s game state in which to search for a best move
      */
     public SearchTask(Player<M,S> player, S s) {
+        this(player, s, SearchExecutor.SWING_WORKER);
+    }
+    
+    /**
+     * @param player for whom to perform a search for the best move in state s
+     * @param s game state in which to search for a best move
+     * @param executor runs the search and calls done()
+     */
+    public SearchTask(Player<M,S> player, S s, SearchExecutor executor) {
         this.state = s;
         this.player = player;
+        this.executor = executor;
     }
     
     /**
-     * starts a background job to determine the best move of this SearchTask's
-     * player and calls done() when the job finishes.
+     * starts a job of this task's executor to determine the best move of this
+     * SearchTask's player and calls done() when the job finishes.
      * @see SearchTask#done(Object) 
-     * @see SwingWorker
+     * @see SearchExecutor
      */
     public void execute() {
-        worker = createNewSwingWorker();
-        worker.execute();
+        executor.execute(() -> {
+            try {
+                return search();
+            } finally {
+                finished = true;
+                searchFinished();
+            }
+        }, this::done);
+    }
+    
+    /** @return the time budget that is passed to the player; this
+     * implementation returns null: the player only gets stop() calls. */
+    protected TimeBudget getTimeBudget() {
+        return null;
+    }
+    
+    /** called when the search of the player returns, before done(). This
+     * implementation does nothing. */
+    protected void searchFinished() {
     }
     
     /** @return the moves of player in this state. **/
@@ -44,7 +73,11 @@ public abstract class SearchTask<M,U,S extends GameState<M>>
             try {
                 // we clone the state here, so whatever the player does with the
                 // state, will not ruin the GUI!
-                return player.getMove((S)state.clone());
+                S clone = (S)state.clone();
+                TimeBudget budget = getTimeBudget();
+                return budget == null
+                        ? player.getMove(clone)
+                        : player.getMove(clone, budget);
             } catch(Exception e) {
                 e.printStackTrace();
                 System.err.println(e);
@@ -55,33 +88,6 @@ public abstract class SearchTask<M,U,S extends GameState<M>>
         }
     }
     
-    /**
-     * @return swing worker that starts the search() method and calls done() when that 
-     *         task finishes.
-     * @see SwingWorker
-     */
-    private SwingWorker<M,U> createNewSwingWorker() {
-        return new SwingWorker<M,U>() {
-            @Override
-            protected M doInBackground() throws Exception {
-                    return SearchTask.this.search();
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    M m = get(); // gets computed move
-                    SearchTask.this.done(m);
-                    
-                } catch (InterruptedException | ExecutionException ex) { 
-                    System.err.println("Exception in search task: " + ex);
-                    ex.printStackTrace();
-                    SearchTask.this.done(null);
-                }
-            }            
-        };
-    }
-    
     /**
      * method called just before execute finishes.
      * @param m move found in search
@@ -94,6 +100,6 @@ public abstract class SearchTask<M,U,S extends GameState<M>>
      */
     public void stop() {
         // only do this once!
-        if (!worker.isDone()) player.stop();
+        if (!finished) player.stop();
     }
 }
\ No newline at end of file
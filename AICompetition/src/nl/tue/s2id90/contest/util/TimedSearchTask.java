@@ -1,13 +1,15 @@
 package nl.tue.s2id90.contest.util;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.contest.util.DeadlineService.Deadline;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.TimeBudget;
 
 /**
- * This search task automatically stops after given number of seconds. This is done
- * by calling its stop() method in a TimerTask.
+ * This search task automatically stops after given number of milliseconds.
+ * This is done by calling its stop() method at a deadline of the
+ * DeadlineService; the deadline is cancelled when the search finishes earlier.
  * @author huub
  * @param <M> Move 
  * @param <U> UndoMove
@@ -15,15 +17,46 @@ import nl.tue.s2id90.game.Player;
  */
 public abstract class TimedSearchTask<M, U, S extends GameState<M>>
     extends SearchTask<M, U, S> {
-    static Timer timer = new Timer();  // can schedule multiple tasks, so no need to make a new one
+    private final Deadline deadline;
+    private final long clockNanos;
+    
     public TimedSearchTask(Player<M, S> player, S s, int milliSeconds) {
-        super(player, s);
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                    TimedSearchTask.this.stop();
-            }            
-        };
-        timer.schedule(task, milliSeconds);        
-    }    
+        this(player, s, milliSeconds, SearchExecutor.SWING_WORKER);
+    }
+    
+    public TimedSearchTask(Player<M, S> player, S s, int milliSeconds, SearchExecutor executor) {
+        this(player, s, milliSeconds, -1, executor);
+    }
+    
+    /**
+     * @param player          player that searches
+     * @param s               state to search a move in
+     * @param milliSeconds    time for this move
+     * @param clockMilliSeconds time left on the game clock of player; negative
+     *                        if there is no clock
+     * @param executor        runs the search
+     */
+    public TimedSearchTask(Player<M, S> player, S s, int milliSeconds,
+            long clockMilliSeconds, SearchExecutor executor) {
+        super(player, s, executor);
+        clockNanos = clockMilliSeconds < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(clockMilliSeconds);
+        deadline = DeadlineService.getInstance()
+                .scheduleAfter(milliSeconds, TimeUnit.MILLISECONDS, this::stop);
+    }
+    
+    /** @return the deadline of this task and the game clock. */
+    @Override
+    protected TimeBudget getTimeBudget() {
+        return new TimeBudget(deadline.getDeadlineNanos(), clockNanos);
+    }
+    
+    @Override
+    protected void searchFinished() {
+        deadline.cancel();
+    }
+    
+    /** @return the deadline at which this task is stopped. */
+    public Deadline getDeadline() {
+        return deadline;
+    }
 }
@@ -0,0 +1,528 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.ArrayList;
+import java.util.List;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+
+/**
+ * A DraughtsState that keeps the 50 playable fields in three 64-bit masks
+ * (white pieces, black pieces and kings) and generates its own moves with
+ * shift/mask arithmetic instead of using the org10x10 MoveGenerator.
+ * The generated moves are ordinary {@link Move} objects that are equal to the
+ * moves of a DraughtsState in the same position, so both states can be used
+ * interchangeably.
+ *
+ * <p>Field f is stored in bit f-1+(f-1)/10. This leaves an unused (ghost) bit
+ * after every second row, such that the four diagonal steps are fixed shifts
+ * that never wrap around the edge of the board:
+ * <blockquote><pre>
+ *   bit  0  1  2  3  4         fields  1  2  3  4  5
+ *       5  6  7  8  9  (10)           6  7  8  9 10
+ *        11 12 13 14 15                11 12 13 14 15
+ *      16 17 18 19 20  (21)          16 17 18 19 20
+ *   ...
+ *   up-left = -6, up-right = -5, down-left = +5, down-right = +6
+ * </pre></blockquote>
+ * Note that getPieces() returns a copy of the board; changing it does not
+ * change this state.
+ */
+public class BitboardDraughtsState extends DraughtsState {
+    /** the four diagonal steps: up-left, up-right, down-left, down-right. **/
+    static final int[] DIRECTIONS = {-6, -5, 5, 6};
+
+    /** bits that correspond to a playable field. **/
+    static final long BOARD;
+
+    /** bits of the fields on which a white, resp. black, piece is promoted. **/
+    static final long WHITE_PROMOTION, BLACK_PROMOTION;
+
+    /** BIT[f] is the bit index of field f; BIT[0] is unused. **/
+    static final int[] BIT = new int[51];
+
+    /** FIELD[b] is the field of bit index b, or 0 for a ghost bit. **/
+    static final int[] FIELD = new int[64];
+
+    /** maximum number of pieces that can be captured in one move. **/
+    private static final int MAX_CAPTURES = 20;
+
+    /** QUIET[p][f][t] is the non-capturing move of piece p from field f to
+     * field t; moves are immutable, so generated moves share these objects. **/
+    private static final Move[][][] QUIET = new Move[5][51][51];
+
+    /** MAN_CAPTURE[c][b][i][p]: man of color c (0 white, 1 black) at bit b
+     * captures piece p in direction DIRECTIONS[i]. **/
+    private static final Move[][][][] MAN_CAPTURE = new Move[2][64][4][5];
+
+    static {
+        long board = 0;
+        for (int f = 1; f <= 50; f++) {
+            BIT[f] = f - 1 + (f - 1) / 10;
+            FIELD[BIT[f]] = f;
+            board |= 1L << BIT[f];
+        }
+        BOARD = board;
+        WHITE_PROMOTION = mask(1, 5);
+        BLACK_PROMOTION = mask(46, 50);
+        initMoves();
+    }
+
+    private long white, black, kings;
+    private boolean whiteToMove;
+    private List<Move> moves = null;
+
+    // scratch space used while generating captures
+    private final int[] path = new int[MAX_CAPTURES + 1];
+    private final int[] capturedBits = new int[MAX_CAPTURES];
+    private int maxCaptures;
+
+    /**
+     * creates an initial draughts state for a game using killer rules.
+     */
+    public BitboardDraughtsState() {
+        super(true);
+        setBegin();
+    }
+
+    /** creates a bitboard copy of the given draughts state. **/
+    public BitboardDraughtsState(DraughtsState ds) {
+        super(ds.isUsingKillerRules());
+        setPieces(ds.getPieces(), ds.isWhiteToMove());
+    }
+
+    /** creates a draughts state with the position of the given BoardState. **/
+    public BitboardDraughtsState(BoardState bs, boolean useKillerRules) {
+        super(useKillerRules);
+        setPieces(bs.getPieces(), bs.isWhiteToMove());
+    }
+
+    /** creates a copy of ds; meant for clone() of subclasses. **/
+    protected BitboardDraughtsState(BitboardDraughtsState ds) {
+        super(ds.useKillerRules);
+        white = ds.white;
+        black = ds.black;
+        kings = ds.kings;
+        whiteToMove = ds.whiteToMove;
+        hashKey = ds.hashKey;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="board setup">
+    private static long mask(int from, int to) {
+        long m = 0;
+        for (int f = from; f <= to; f++) {
+            m |= 1L << BIT[f];
+        }
+        return m;
+    }
+
+    /** creates the shared quiet moves and single captures by a man. **/
+    private static void initMoves() {
+        for (int f = 1; f <= 50; f++) {
+            long from = 1L << BIT[f];
+            for (int i = 0; i < 4; i++) {
+                int d = DIRECTIONS[i];
+                // men only move forward, kings slide
+                int man = d < 0 ? WHITEPIECE : BLACKPIECE;
+                long promotion = d < 0 ? WHITE_PROMOTION : BLACK_PROMOTION;
+                long to = shift(from, d);
+                if (to != 0) {
+                    int t = FIELD[Long.numberOfTrailingZeros(to)];
+                    int end = (to & promotion) != 0 ? man + 2 : man;
+                    QUIET[man][f][t] = quietMove(f, t, man, end);
+                }
+                for (; to != 0; to = shift(to, d)) {
+                    int t = FIELD[Long.numberOfTrailingZeros(to)];
+                    QUIET[WHITEKING][f][t] = quietMove(f, t, WHITEKING, WHITEKING);
+                    QUIET[BLACKKING][f][t] = quietMove(f, t, BLACKKING, BLACKKING);
+                }
+                // men capture in all directions
+                long over = shift(from, d), land = shift(over, d);
+                if (land == 0) continue;
+                int o = FIELD[Long.numberOfTrailingZeros(over)];
+                int t = FIELD[Long.numberOfTrailingZeros(land)];
+                for (int c = 0; c < 2; c++) {
+                    man = c == 0 ? WHITEPIECE : BLACKPIECE;
+                    promotion = c == 0 ? WHITE_PROMOTION : BLACK_PROMOTION;
+                    int end = (land & promotion) != 0 ? man + 2 : man;
+                    for (int p : c == 0 ? new int[]{BLACKPIECE, BLACKKING}
+                                        : new int[]{WHITEPIECE, WHITEKING}) {
+                        MAN_CAPTURE[c][BIT[f]][i][p] = new Move(new int[]{f, t},
+                                new int[]{p}, new int[]{o}, man, end);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Move quietMove(int from, int to, int beginPiece, int endPiece) {
+        return new Move(new int[]{from, to}, new int[0], new int[0],
+                beginPiece, endPiece);
+    }
+
+    private void setBegin() {
+        black = mask(1, 20);
+        white = mask(31, 50);
+        kings = 0;
+        whiteToMove = true;
+        moves = null;
+        hashKey = Zobrist.hash(getPieces(), whiteToMove);
+    }
+
+    private void setPieces(int[] pieces, boolean whiteToMove) {
+        white = black = kings = 0;
+        for (int f = 1; f <= 50; f++) {
+            long b = 1L << BIT[f];
+            switch (pieces[f]) {
+                case WHITEKING:  white |= b; kings |= b; break;
+                case WHITEPIECE: white |= b; break;
+                case BLACKKING:  black |= b; kings |= b; break;
+                case BLACKPIECE: black |= b; break;
+                default: break;
+            }
+        }
+        this.whiteToMove = whiteToMove;
+        moves = null;
+        hashKey = Zobrist.hash(pieces, whiteToMove);
+    }
+
+    /** @return a BoardState with the same position as this state. **/
+    public BoardState toBoardState() {
+        BoardState bs = new BoardState(10, 10);
+        bs.setPieces(getPieces());
+        bs.setWhiteToMove(whiteToMove);
+        return bs;
+    }
+    //</editor-fold>
+
+    @Override
+    public List<Move> getMoves() {
+        if (moves == null) moves = generateMoves();
+        return moves;
+    }
+
+    /** fills target without allocating new moves for quiet moves and
+     * single captures by a man; target is cleared first.
+     */
+    @Override
+    public void getMoves(List<Move> target) {
+        target.clear();
+        if (moves != null) {
+            target.addAll(moves);
+        } else {
+            generateMoves(target);
+        }
+    }
+
+    /** determined with a few mask operations, without generating moves. **/
+    @Override
+    public boolean isEndState() {
+        if (moves != null) return moves.isEmpty();
+        long own = whiteToMove ? white : black;
+        long enemy = whiteToMove ? black : white;
+        long empty = BOARD & ~(white | black);
+        long men = own & ~kings;
+        int first = whiteToMove ? 0 : 2;
+        for (int i = 0; i < 4; i++) {
+            int d = DIRECTIONS[i];
+            // a quiet move of a man or a king
+            long movers = i == first || i == first + 1 ? own : own & kings;
+            if ((shift(movers, d) & empty) != 0) return false;
+            // a capture; a king that has no quiet move can only capture an
+            // adjacent piece, just like a man
+            if ((shift(shift(empty, -d) & enemy, -d) & own) != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void doMove(Move m) {
+        moves = null;      // invalidate moves
+        hashKey ^= Zobrist.moveKey(m);
+        long begin = 1L << BIT[m.getBeginField()];
+        long end = 1L << BIT[m.getEndField()];
+        long captured = capturedMask(m);
+        if (m.isWhiteMove()) {
+            white = white & ~begin | end;
+            black &= ~captured;
+        } else {
+            black = black & ~begin | end;
+            white &= ~captured;
+        }
+        kings &= ~(begin | captured);
+        if (Draughts.isKing(m.getEndPiece())) kings |= end;
+        whiteToMove = !whiteToMove;
+    }
+
+    @Override
+    public void undoMove(Move m) {
+        moves = null;      // invalidate cached moves
+        hashKey ^= Zobrist.moveKey(m);
+        long begin = 1L << BIT[m.getBeginField()];
+        long end = 1L << BIT[m.getEndField()];
+        long capturedKings = 0;
+        long captured = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            long b = 1L << BIT[m.getCapturedField(i)];
+            captured |= b;
+            if (Draughts.isKing(m.getCapturedPiece(i))) capturedKings |= b;
+        }
+        kings &= ~end;
+        if (m.isWhiteMove()) {
+            white = white & ~end | begin;
+            black |= captured;
+        } else {
+            black = black & ~end | begin;
+            white |= captured;
+        }
+        kings |= capturedKings;
+        if (Draughts.isKing(m.getBeginPiece())) kings |= begin;
+        whiteToMove = !whiteToMove;
+    }
+
+    private static long capturedMask(Move m) {
+        long captured = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            captured |= 1L << BIT[m.getCapturedField(i)];
+        }
+        return captured;
+    }
+
+    @Override
+    public String toString() {
+        return toBoardState().toString() + "      w2m = " + isWhiteToMove();
+    }
+
+    /** returns an array a of length 51:
+     * a[0] is unused; a[i] is one of {WHITE,BLACK,WHITE_KING,BLACK_KING,EMPTY}.
+     * The array is a copy; changing it does not change this state.
+     * @return state of the board as an int array.
+     */
+    @Override
+    public int[] getPieces() {
+        int[] pieces = new int[51];
+        for (int f = 1; f <= 50; f++) {
+            pieces[f] = pieceAt(BIT[f]);
+        }
+        return pieces;
+    }
+
+    @Override
+    public int getPiece(int f) {
+        if (f < 1 || f > 50) throw new IllegalArgumentException();
+        return pieceAt(BIT[f]);
+    }
+
+    @Override
+    public int getPiece(int r, int c) {
+        if (r < 0 || r > 9 || c < 0 || c > 9 || (r + c) % 2 == 0) {
+            throw new IllegalArgumentException();
+        }
+        return pieceAt(BIT[5 * r + c / 2 + 1]);
+    }
+
+    private int pieceAt(int bit) {
+        long b = 1L << bit;
+        if ((white & b) != 0) return (kings & b) != 0 ? WHITEKING : WHITEPIECE;
+        if ((black & b) != 0) return (kings & b) != 0 ? BLACKKING : BLACKPIECE;
+        return EMPTY;
+    }
+
+    @Override
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    @Override
+    public void reset() {
+        setBegin();
+    }
+
+    @Override
+    public BitboardDraughtsState clone() {
+        return new BitboardDraughtsState(this);
+    }
+
+    /** @return mask with the white pieces (including kings). **/
+    public long getWhite() { return white; }
+
+    /** @return mask with the black pieces (including kings). **/
+    public long getBlack() { return black; }
+
+    /** @return mask with the kings of both colors. **/
+    public long getKings() { return kings; }
+
+    /** @return the field of bit index b of a mask, or 0 for a ghost bit. **/
+    public static int field(int b) { return FIELD[b]; }
+
+    //<editor-fold defaultstate="collapsed" desc="move generation">
+    /** shifts mask x one diagonal step in direction d. **/
+    static long shift(long x, int d) {
+        return (d > 0 ? x << d : x >>> -d) & BOARD;
+    }
+
+    private List<Move> generateMoves() {
+        List<Move> result = new ArrayList<>();
+        generateMoves(result);
+        return result;
+    }
+
+    private void generateMoves(List<Move> result) {
+        generateCaptures(result);
+        if (result.isEmpty()) generateQuietMoves(result);
+    }
+
+    private void generateQuietMoves(List<Move> result) {
+        long own = whiteToMove ? white : black;
+        long empty = BOARD & ~(white | black);
+        long men = own & ~kings;
+        int piece = whiteToMove ? WHITEPIECE : BLACKPIECE;
+        int king = whiteToMove ? WHITEKING : BLACKKING;
+
+        // men: all pieces at once, one shift per forward direction
+        int first = whiteToMove ? 0 : 2;
+        for (int i = first; i < first + 2; i++) {
+            int d = DIRECTIONS[i];
+            long targets = shift(men, d) & empty;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                result.add(QUIET[piece][FIELD[to - d]][FIELD[to]]);
+            }
+        }
+
+        // kings: slide along the four diagonals
+        long ownKings = own & kings;
+        while (ownKings != 0) {
+            int from = Long.numberOfTrailingZeros(ownKings);
+            ownKings &= ownKings - 1;
+            for (int d : DIRECTIONS) {
+                long to = shift(1L << from, d);
+                while ((to & empty) != 0) {
+                    result.add(QUIET[king][FIELD[from]][FIELD[Long.numberOfTrailingZeros(to)]]);
+                    to = shift(to, d);
+                }
+            }
+        }
+    }
+
+    /** adds all maximal captures of the player to move to result. **/
+    private void generateCaptures(List<Move> result) {
+        long own = whiteToMove ? white : black;
+        long enemy = whiteToMove ? black : white;
+        long empty = BOARD & ~(white | black);
+        maxCaptures = 0;
+
+        // men that can capture: own man, enemy neighbour, empty field behind it
+        long men = own & ~kings;
+        long capturingMen = 0;
+        for (int d : DIRECTIONS) {
+            capturingMen |= shift(shift(empty, -d) & enemy, -d) & men;
+        }
+        while (capturingMen != 0) {
+            int from = Long.numberOfTrailingZeros(capturingMen);
+            capturingMen &= capturingMen - 1;
+            path[0] = from;
+            captureMan(result, from, enemy, empty | (1L << from), 0L, 0);
+        }
+
+        long ownKings = own & kings;
+        while (ownKings != 0) {
+            int from = Long.numberOfTrailingZeros(ownKings);
+            ownKings &= ownKings - 1;
+            path[0] = from;
+            captureKing(result, from, enemy, empty | (1L << from), 0L, 0);
+        }
+
+        if (useKillerRules) removeNonKillerMoves(result);
+    }
+
+    /**
+     * depth first search over the captures of a man at bit 'at'. Captured
+     * pieces stay on the board until the move is finished, so they can not be
+     * jumped twice and are not empty.
+     */
+    private void captureMan(List<Move> result, int at, long enemy, long empty,
+            long captured, int count) {
+        boolean extended = false;
+        for (int d : DIRECTIONS) {
+            long over = shift(1L << at, d);
+            if ((over & enemy & ~captured) == 0) continue;
+            long land = shift(over, d);
+            if ((land & empty) == 0) continue;
+            int to = at + 2 * d;
+            capturedBits[count] = at + d;
+            path[count + 1] = to;
+            extended = true;
+            captureMan(result, to, enemy, empty, captured | over, count + 1);
+        }
+        if (!extended && count > 0) addCapture(result, count);
+    }
+
+    /** depth first search over the captures of a king at bit 'at'. **/
+    private void captureKing(List<Move> result, int at, long enemy, long empty,
+            long captured, int count) {
+        boolean extended = false;
+        for (int d : DIRECTIONS) {
+            long over = shift(1L << at, d);
+            while ((over & empty) != 0) over = shift(over, d);
+            if ((over & enemy & ~captured) == 0) continue;
+            long land = shift(over, d);
+            capturedBits[count] = Long.numberOfTrailingZeros(over);
+            while ((land & empty) != 0) {
+                path[count + 1] = Long.numberOfTrailingZeros(land);
+                extended = true;
+                captureKing(result, path[count + 1], enemy, empty, captured | over, count + 1);
+                land = shift(land, d);
+            }
+        }
+        if (!extended && count > 0) addCapture(result, count);
+    }
+
+    /** adds the capture in path/capturedBits if it is not shorter than the
+     * captures found so far.
+     */
+    private void addCapture(List<Move> result, int count) {
+        if (count < maxCaptures) return;
+        if (count > maxCaptures) {
+            result.clear();
+            maxCaptures = count;
+        }
+        int begin = pieceAt(path[0]);
+        if (count == 1 && !Draughts.isKing(begin)) {
+            int d = capturedBits[0] - path[0];
+            result.add(MAN_CAPTURE[whiteToMove ? 0 : 1][path[0]][d < 0 ? d + 6 : d - 3]
+                    [pieceAt(capturedBits[0])]);
+            return;
+        }
+        int[] fields = new int[count + 1];
+        int[] capturedFields = new int[count];
+        int[] capturedPieces = new int[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = FIELD[path[i]];
+            capturedFields[i] = FIELD[capturedBits[i]];
+            capturedPieces[i] = pieceAt(capturedBits[i]);
+        }
+        fields[count] = FIELD[path[count]];
+        int end = begin;
+        long promotion = whiteToMove ? WHITE_PROMOTION : BLACK_PROMOTION;
+        if (!Draughts.isKing(begin) && (promotion & (1L << path[count])) != 0) {
+            end = whiteToMove ? WHITEKING : BLACKKING;
+        }
+        result.add(new Move(fields, capturedPieces, capturedFields, begin, end));
+    }
+
+    /** removes king captures whose last captured piece is a king and that do
+     * not end immediately behind that piece.
+     * @see MoveFilterKiller
+     */
+    private static void removeNonKillerMoves(List<Move> result) {
+        result.removeIf(m -> {
+            if (m.isPieceMove() || !m.isCapture()) return false;
+            int c = m.getCaptureCount() - 1;
+            if (!Draughts.isKing(m.getCapturedPiece(c))) return false;
+            int distance = Math.abs(BIT[m.getEndField()] - BIT[m.getCapturedField(c)]);
+            return distance != 5 && distance != 6;
+        });
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,103 @@
+package nl.tue.s2id90.draughts;
+
+/**
+ * Geometry of the fields 1..50 of a 10x10 board, computed once when the class
+ * is loaded, so that evaluation functions and move filters can use table
+ * lookups instead of computing rows and columns.
+ *
+ * <p>Rows and columns are numbered 0..9 as in {@link DraughtsState}. Masks are
+ * longs in which bit f is set for each field f in the set, to be tested with
+ * contains(mask, f); they are not bitboards of {@link BitboardDraughtsState}.
+ * Arrays returned by the methods of this class are shared and must not be
+ * changed.
+ */
+public final class BoardGeometry {
+    /** directions, in the order used by neighbours(f) and ray(f,d). **/
+    public static final int UP_LEFT = 0, UP_RIGHT = 1, DOWN_LEFT = 2, DOWN_RIGHT = 3;
+
+    private static final int[] ROW = new int[51], COLUMN = new int[51];
+
+    /** STEP[f][d]: the neighbour of f in direction d, or 0. **/
+    private static final int[][] STEP = new int[51][4];
+
+    /** NEIGHBOURS[f]: all neighbours of f, in direction order. **/
+    private static final int[][] NEIGHBOURS = new int[51][];
+
+    /** RAY[f][d]: the fields from f in direction d, nearest first. **/
+    private static final int[][][] RAY = new int[51][4][];
+
+    /** the eight fields in rows 3..6 and columns 3..6. **/
+    public static final long CENTER;
+
+    static {
+        for (int f = 1; f <= 50; f++) {
+            ROW[f] = (f - 1) / 5;
+            COLUMN[f] = 2 * ((f - 1) % 5) + (ROW[f] % 2 == 0 ? 1 : 0);
+        }
+        long center = 0;
+        for (int f = 1; f <= 50; f++) {
+            int count = 0;
+            for (int d = 0; d < 4; d++) {
+                STEP[f][d] = field(ROW[f] + rowStep(d), COLUMN[f] + columnStep(d));
+                if (STEP[f][d] != 0) count++;
+            }
+            NEIGHBOURS[f] = new int[count];
+            for (int d = 0, i = 0; d < 4; d++) {
+                if (STEP[f][d] != 0) NEIGHBOURS[f][i++] = STEP[f][d];
+            }
+            if (ROW[f] >= 3 && ROW[f] <= 6 && COLUMN[f] >= 3 && COLUMN[f] <= 6) {
+                center |= 1L << f;
+            }
+        }
+        for (int f = 1; f <= 50; f++) {
+            for (int d = 0; d < 4; d++) {
+                int length = 0;
+                for (int g = STEP[f][d]; g != 0; g = STEP[g][d]) length++;
+                RAY[f][d] = new int[length];
+                for (int g = STEP[f][d], i = 0; g != 0; g = STEP[g][d]) RAY[f][d][i++] = g;
+            }
+        }
+        CENTER = center;
+    }
+
+    private BoardGeometry() { }
+
+    private static int rowStep(int d)    { return d < 2 ? -1 : 1; }
+    private static int columnStep(int d) { return d % 2 == 0 ? -1 : 1; }
+
+    /** @return field at row r and column c, or 0 if that is not a field. **/
+    private static int field(int r, int c) {
+        if (r < 0 || r > 9 || c < 0 || c > 9 || (r + c) % 2 == 0) return 0;
+        return 5 * r + c / 2 + 1;
+    }
+
+    /** @return row 0..9 of field f. **/
+    public static int row(int f) { return ROW[f]; }
+
+    /** @return column 0..9 of field f. **/
+    public static int column(int f) { return COLUMN[f]; }
+
+    /** @return the neighbour of field f in direction d, or 0 if there is none. **/
+    public static int neighbour(int f, int d) { return STEP[f][d]; }
+
+    /**
+     * @return the diagonal neighbours of field f: four for a field that is not
+     *         on the edge, in the order up left, up right, down left, down right.
+     */
+    public static int[] neighbours(int f) { return NEIGHBOURS[f]; }
+
+    /** @return the fields from f in direction d up to the edge, nearest first. **/
+    public static int[] ray(int f, int d) { return RAY[f][d]; }
+
+    /** @return whether or not fields f0 and f1 are diagonal neighbours. **/
+    public static boolean areNeighbours(int f0, int f1) {
+        int[] n = NEIGHBOURS[f0];
+        for (int i = 0; i < n.length; i++) {
+            if (n[i] == f1) return true;
+        }
+        return false;
+    }
+
+    /** @return whether or not field f is in mask. **/
+    public static boolean contains(long mask, int f) { return (mask >>> f & 1L) != 0; }
+}
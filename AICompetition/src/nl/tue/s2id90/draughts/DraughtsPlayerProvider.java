@@ -2,23 +2,71 @@ package nl.tue.s2id90.draughts;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
 import nl.tue.s2id90.contest.PlayerProvider;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 
 /**
- *
+ * Provides draughts players, either as shared instances or created by
+ * factories. With factories every game gets a fresh player, so games can be
+ * played at the same time; a factory gets the number of threads the player
+ * may use in its game, e.g.
+ * <pre>
+ *   super(threads -&gt; new MyPlayer(8, threads));
+ * </pre>
  * @author huub
  */
 public class DraughtsPlayerProvider extends PlayerProvider<DraughtsPlayer> {
     private final List<DraughtsPlayer> players;
+    
+    /** factory per player of getPlayers(); empty for shared players. */
+    private final Map<DraughtsPlayer, IntFunction<? extends DraughtsPlayer>> factories
+            = new IdentityHashMap<>();
+    
     public DraughtsPlayerProvider(DraughtsPlayer ... arg) {
         this.players = new ArrayList<>();
         players.addAll(Arrays.asList(arg));
     }
+    
+    /**
+     * Provider that creates a new player for every game.
+     * Each factory is called once more, with all cores, for the player in
+     * getPlayers().
+     * @param factory creates a player that uses the given number of threads
+     * @param more factories of other players
+     */
+    @SafeVarargs
+    public DraughtsPlayerProvider(IntFunction<? extends DraughtsPlayer> factory,
+            IntFunction<? extends DraughtsPlayer> ... more) {
+        this.players = new ArrayList<>();
+        add(factory);
+        for (IntFunction<? extends DraughtsPlayer> f : more) {
+            add(f);
+        }
+    }
+    
+    private void add(IntFunction<? extends DraughtsPlayer> factory) {
+        DraughtsPlayer player = factory.apply(Runtime.getRuntime().availableProcessors());
+        players.add(player);
+        factories.put(player, factory);
+    }
 
     @Override
     public List<DraughtsPlayer> getPlayers() {
         return players;
-    }       
+    }
+    
+    @Override
+    public DraughtsPlayer newPlayer(DraughtsPlayer player, int threads) {
+        IntFunction<? extends DraughtsPlayer> factory = factories.get(player);
+        return factory == null ? player : factory.apply(threads);
+    }
+    
+    @Override
+    public boolean createsNewPlayers() {
+        return !factories.isEmpty();
+    }
 }
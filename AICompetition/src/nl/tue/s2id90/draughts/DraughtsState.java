@@ -75,12 +75,16 @@ public class DraughtsState implements GameState<Move> {
     private final MoveGenerator moveGenerator;
     private List<Move> moves=null;
     
+    /** Zobrist key of this state, updated in doMove and undoMove. **/
+    long hashKey;
+    
     /**
      * creates an initial  draughts state for a game using killer rules
      */
     public DraughtsState() {
         this(new BoardState(10,10),true);
         bs.setBegin();
+        hashKey = Zobrist.hash(bs.getPieces(), bs.isWhiteToMove());
     }
     
     private DraughtsState(DraughtsState ds) {
@@ -92,8 +96,26 @@ public class DraughtsState implements GameState<Move> {
         this.bs = (BoardState) bs.clone();
         this.useKillerRules = useKillerRules;
         moveGenerator = MyMoveGeneratorFactory.create(bs, useKillerRules);
-    }  
-    
+        hashKey = Zobrist.hash(this.bs.getPieces(), this.bs.isWhiteToMove());
+    }
+
+    /**
+     * creates a draughts state without a BoardState and move generator. Only
+     * meant for subclasses that keep the board themselves and therefore override
+     * all methods of this class that use the BoardState.
+     * @see BitboardDraughtsState
+     */
+    protected DraughtsState(boolean useKillerRules) {
+        this.bs = null;
+        this.useKillerRules = useKillerRules;
+        moveGenerator = null;
+    }
+
+    /** @return whether or not killer rules are used in this state. **/
+    public boolean isUsingKillerRules() {
+        return useKillerRules;
+    }
+
     
     /**
      *
@@ -106,6 +128,17 @@ public class DraughtsState implements GameState<Move> {
         return moves;
     }
 
+    /**
+     * replaces the contents of target by the valid moves in this state. Unlike
+     * getMoves() this does not cache a new list, so a search can reuse its
+     * own move lists; moves that were cached already are copied.
+     * @param target list that receives the moves
+     */
+    public void getMoves(List<Move> target) {
+        target.clear();
+        target.addAll(moves != null ? moves : moveGenerator.generateMoves(bs));
+    }
+
     /**
      *
      * @return
@@ -124,6 +157,7 @@ public class DraughtsState implements GameState<Move> {
     @Override
     public void doMove(Move m) {
         moves = null;      // invalidate moves
+        hashKey ^= Zobrist.moveKey(m);
         bs.moveForward(m);
     }
 
@@ -134,6 +168,7 @@ public class DraughtsState implements GameState<Move> {
     @Override
     public void undoMove(Move m) {
         moves=null;             // invalidate cached moves
+        hashKey ^= Zobrist.moveKey(m);
         bs.moveBackward(m);
     }
     
@@ -196,6 +231,16 @@ public class DraughtsState implements GameState<Move> {
     public void reset() {
         moves=null;       // invalidate cached moves
         bs.setBegin();
+        hashKey = Zobrist.hash(bs.getPieces(), bs.isWhiteToMove());
+    }
+    
+    /**
+     * @return 64-bit Zobrist key of this state; equal positions with the same
+     *         player to move have equal keys.
+     * @see Zobrist
+     */
+    public long getHashKey() {
+        return hashKey;
     }
 
     @Override
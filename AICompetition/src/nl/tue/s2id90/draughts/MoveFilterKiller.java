@@ -50,17 +50,11 @@ public class MoveFilterKiller implements MoveFilter {
                     int e = m.getEndField();        // end field of move
                     int f = m.getCapturedField(c);  // field of last captured piece
                     // if e and f are neighbouring fields, m is a killer move.
-                    return areNeighbours(e,f);
+                    return BoardGeometry.areNeighbours(e,f);
                 } else {
                     // all piece captures are killer moves
                     return true;
                 }
             }
     }
-    
-    private boolean areNeighbours(int f0, int f1) {
-        int r0 =bs.f2r(f0) , c0=bs.f2c(f0);
-        int r1 =bs.f2r(f1) , c1=bs.f2c(f1);
-        return (r0-r1==1||r1-r0==1) && (c0-c1==1||c1-c0==1);
-    }
 }
@@ -0,0 +1,145 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+
+/**
+ * Checks a DraughtsState implementation with its own move generator against
+ * DraughtsState, which uses the org10x10 MoveGenerator: with MoveFilterKiller
+ * for killer rules and createMoveGeneratorInternational for international
+ * rules. The positions are taken from random games with a fixed seed.
+ *
+ * <p>In every position the checked state must have
+ * <ul>
+ * <li>the same moves: same path, captured fields and pieces (in capture
+ *     order), begin and end piece, and each move equally often;</li>
+ * <li>the same answer to isEndState;</li>
+ * <li>after doMove and undoMove of each move, the same pieces, player to move
+ *     and hash key as the reference state.</li>
+ * </ul>
+ *
+ * <p>Usage: <code>MoveGeneratorValidator [games [seed]]</code>; checks
+ * BitboardDraughtsState.
+ */
+public class MoveGeneratorValidator {
+    /** number of mismatches that is printed in full. */
+    private static final int MAX_REPORTS = 10;
+
+    /** games with only kings left can go on forever; they are cut off. */
+    private static final int MAX_PLIES = 300;
+
+    private final Function<DraughtsState, DraughtsState> candidate;
+    private long positions, mismatches;
+
+    /**
+     * @param candidate creates the state to be checked from a reference state;
+     *                  it must use the rules of that state.
+     */
+    public MoveGeneratorValidator(Function<DraughtsState, DraughtsState> candidate) {
+        this.candidate = candidate;
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 2090L;
+        MoveGeneratorValidator validator = new MoveGeneratorValidator(BitboardDraughtsState::new);
+        for (boolean killerRules : new boolean[] {true, false}) {
+            validator.validate(games, seed, killerRules);
+            System.out.format("%s rules: %d positions, %d mismatches\n",
+                    killerRules ? "killer" : "international",
+                    validator.positions, validator.mismatches);
+        }
+        System.exit(validator.mismatches == 0 ? 0 : 1);
+    }
+
+    /**
+     * checks all positions of the given number of random games; statistics
+     * are reset first.
+     */
+    public void validate(int games, long seed, boolean killerRules) {
+        positions = mismatches = 0;
+        Random random = new Random(seed);
+        for (int g = 0; g < games; g++) {
+            BoardState bs = new BoardState(10, 10);
+            bs.setBegin();
+            DraughtsState reference = new DraughtsState(bs, killerRules);
+            DraughtsState checked = candidate.apply(reference);
+            for (int ply = 0; ply < MAX_PLIES && check(reference, checked); ply++) {
+                List<Move> moves = reference.getMoves();
+                Move m = moves.get(random.nextInt(moves.size()));
+                reference.doMove(m);
+                checked.doMove(m);
+            }
+        }
+    }
+
+    /** @return whether or not the game can continue: the states agree and
+     * the position is not an end state.
+     */
+    private boolean check(DraughtsState reference, DraughtsState checked) {
+        positions++;
+        List<String> expected = keys(reference.getMoves());
+        List<String> actual = keys(checked.getMoves());
+        if (!expected.equals(actual)) {
+            return report(reference, "moves differ:\n  expected " + expected
+                    + "\n  actual   " + actual);
+        }
+        if (reference.isEndState() != candidate.apply(reference).isEndState()) {
+            return report(reference, "isEndState differs");
+        }
+        for (Move m : checked.getMoves()) {
+            reference.doMove(m);
+            checked.doMove(m);
+            boolean same = sameState(reference, checked);
+            reference.undoMove(m);
+            checked.undoMove(m);
+            if (!same) return report(reference, "state differs after " + m);
+            if (!sameState(reference, checked)) {
+                return report(reference, "state differs after undo of " + m);
+            }
+        }
+        return !reference.isEndState();
+    }
+
+    private static boolean sameState(DraughtsState reference, DraughtsState checked) {
+        return Arrays.equals(reference.getPieces(), checked.getPieces())
+                && reference.isWhiteToMove() == checked.isWhiteToMove()
+                && reference.getHashKey() == checked.getHashKey();
+    }
+
+    private boolean report(DraughtsState reference, String message) {
+        if (mismatches++ < MAX_REPORTS) {
+            BoardState bs = new BoardState(10, 10);
+            bs.setPieces(reference.getPieces());
+            bs.setWhiteToMove(reference.isWhiteToMove());
+            System.out.format("%s\n%s\n", PDNUtil.BoardState2Fen(bs), message);
+        }
+        return false;
+    }
+
+    /** @return a sorted list with a description of each move. */
+    private static List<String> keys(List<Move> moves) {
+        List<String> keys = new ArrayList<>(moves.size());
+        for (Move m : moves) {
+            StringBuilder key = new StringBuilder();
+            key.append(m.getBeginPiece()).append(':');
+            for (int i = 0; i < m.getFieldCount(); i++) {
+                key.append(m.getField(i)).append(i + 1 < m.getFieldCount() ? '-' : ':');
+            }
+            for (int i = 0; i < m.getCaptureCount(); i++) {
+                key.append('x').append(m.getCapturedField(i))
+                   .append('/').append(m.getCapturedPiece(i));
+            }
+            keys.add(key.append(':').append(m.getEndPiece()).toString());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
@@ -0,0 +1,121 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+
+/**
+ * Counts the leaves of the game tree of a position up to a fixed depth
+ * (perft), using only getMoves, doMove and undoMove of a DraughtsState.
+ * Equal counts for two move generators on many positions are a strong
+ * indication that they generate the same moves. The leaves of the last ply
+ * are counted without doing their moves, so the benchmark of the move
+ * generator is the number of interior nodes, of which the moves were
+ * generated, per second.
+ *
+ * <p>Usage: <code>Perft [options] depth</code>, with options
+ * <ul>
+ * <li><code>-fen FEN</code>: position in PDN FEN notation, default the initial position;</li>
+ * <li><code>-international</code>: international rules instead of killer rules;</li>
+ * <li><code>-bitboard</code>: use BitboardDraughtsState instead of the org10x10 generator;</li>
+ * <li><code>-divide</code>: also print the count below every move of the
+ *     position; the depth is then at least 1.</li>
+ * </ul>
+ * @see MoveGeneratorValidator
+ */
+public class Perft {
+
+    public static void main(String[] args) {
+        String fen = null;
+        boolean killerRules = true, bitboard = false, divide = false;
+        int depth = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-fen":           fen = args[++i]; break;
+                case "-international": killerRules = false; break;
+                case "-bitboard":      bitboard = true; break;
+                case "-divide":        divide = true; break;
+                default:               depth = Integer.parseInt(args[i]);
+            }
+        }
+        if (depth < 0 || divide && depth < 1) {
+            System.err.println("usage: Perft [-fen FEN] [-international] [-bitboard] [-divide] depth");
+            System.exit(1);
+        }
+
+        BoardState bs = new BoardState(10, 10);
+        if (fen == null) bs.setBegin(); else bs = PDNUtil.Fen2BoardState(fen);
+        DraughtsState s = bitboard
+                ? new BitboardDraughtsState(bs, killerRules)
+                : new DraughtsState(bs, killerRules);
+        System.out.format("%s, %s rules, %s\n", PDNUtil.BoardState2Fen(bs),
+                killerRules ? "killer" : "international",
+                bitboard ? "bitboard" : "org10x10 generator");
+
+        long start = System.nanoTime();
+        long leaves;
+        long[] interior = new long[1];
+        if (divide) {
+            leaves = 0;
+            for (Map.Entry<String, Long> e : divide(s, depth, interior).entrySet()) {
+                System.out.format("%-20s %12d\n", e.getKey(), e.getValue());
+                leaves += e.getValue();
+            }
+        } else {
+            leaves = perft(s, depth, interior);
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.format("perft(%d) = %d in %.3f s, %d interior nodes, %.0f nodes/s, %.0f leaves/s\n",
+                depth, leaves, nanos / 1e9, interior[0],
+                interior[0] * 1e9 / nanos, leaves * 1e9 / nanos);
+    }
+
+    /** @return the number of leaves of the game tree of s with the given
+     * depth; s is unchanged afterwards.
+     */
+    public static long perft(DraughtsState s, int depth) {
+        return perft(s, depth, new long[1]);
+    }
+
+    /** @return perft(s, depth); interior[0] is increased by the number of
+     * nodes of which the moves were generated.
+     */
+    static long perft(DraughtsState s, int depth, long[] interior) {
+        if (depth == 0) return 1;
+        List<Move> moves = s.getMoves();
+        interior[0]++;
+        if (depth == 1) return moves.size();
+        long leaves = 0;
+        for (Move m : moves) {
+            s.doMove(m);
+            leaves += perft(s, depth - 1, interior);
+            s.undoMove(m);
+        }
+        return leaves;
+    }
+
+    /** @return perft(depth-1) after each move of s, keyed by the move in
+     * full notation; s is unchanged afterwards.
+     * @param depth at least 1
+     * @throws IllegalArgumentException if depth is less than 1
+     */
+    public static Map<String, Long> divide(DraughtsState s, int depth) {
+        return divide(s, depth, new long[1]);
+    }
+
+    /** @return divide(s, depth); interior[0] is increased as by perft. */
+    static Map<String, Long> divide(DraughtsState s, int depth, long[] interior) {
+        if (depth < 1) throw new IllegalArgumentException("depth " + depth + " < 1");
+        Map<String, Long> result = new TreeMap<>();
+        interior[0]++;
+        for (Move m : s.getMoves()) {
+            s.doMove(m);
+            result.merge(m.getFullNotation(), perft(s, depth - 1, interior), Long::sum);
+            s.undoMove(m);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.Random;
+import org10x10.dam.game.Move;
+
+/**
+ * Zobrist keys for draughts positions. The key of a position is the xor of
+ * one random number per (piece, field) pair on the board, xor-ed with SIDE
+ * when black is to move. Because xor is its own inverse, the same
+ * {@link #moveKey(Move)} updates a key both when a move is done and when it
+ * is undone.
+ */
+public final class Zobrist {
+    /** PIECE[p][f] is the random number of piece p on field f. **/
+    private static final long[][] PIECE = new long[5][51];
+
+    /** random number that is part of the key when black is to move. **/
+    public static final long SIDE;
+
+    static {
+        // fixed seed: keys must be the same in every run, e.g. for stored books
+        Random random = new Random(2090L);
+        for (int p = 1; p <= 4; p++) {
+            for (int f = 1; f <= 50; f++) {
+                PIECE[p][f] = random.nextLong();
+            }
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() { }
+
+    /** @return the key of piece p on field f, or 0 for an empty field. **/
+    public static long pieceKey(int p, int f) {
+        return p >= 1 && p <= 4 ? PIECE[p][f] : 0L;
+    }
+
+    /**
+     * computes the key of a position from scratch.
+     * @param pieces board as returned by DraughtsState.getPieces()
+     * @param whiteToMove whether or not white is to move
+     * @return Zobrist key of the position
+     */
+    public static long hash(int[] pieces, boolean whiteToMove) {
+        long key = whiteToMove ? 0L : SIDE;
+        for (int f = 1; f <= 50; f++) {
+            key ^= pieceKey(pieces[f], f);
+        }
+        return key;
+    }
+
+    /**
+     * @param m a move
+     * @return the value that must be xor-ed with a key to do or undo move m.
+     */
+    public static long moveKey(Move m) {
+        long key = SIDE
+                ^ PIECE[m.getBeginPiece()][m.getBeginField()]
+                ^ PIECE[m.getEndPiece()][m.getEndField()];
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            key ^= PIECE[m.getCapturedPiece(i)][m.getCapturedField(i)];
+        }
+        return key;
+    }
+}
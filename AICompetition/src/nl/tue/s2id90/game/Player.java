@@ -18,11 +18,32 @@ public interface Player<Move,State extends GameState<Move>>  extends Identity
      **/
     Move getMove(State s);
     
+    /** computes a valid move in the given game state s, within the given time
+     * budget. The player is still stopped at the deadline of the budget, but
+     * a player that knows its budget can, e.g., skip an iteration that can
+     * not be finished in time, or spend more time on a difficult move.
+     * This implementation ignores the budget and calls getMove(s).
+     * @param s game state
+     * @param budget deadline of this move and time left on the game clock
+     * @return a valid move in State s.
+     * @see stop()
+     **/
+    default Move getMove(State s, TimeBudget budget) {
+        return getMove(s);
+    }
+    
     /** @return the computed value of the last Move. Returns null if that value
       * is not available.
      **/
     Integer getValue();
     
+    /** @return statistics of the search of the last Move. Returns null if
+      * the player does not keep statistics.
+     **/
+    default SearchStatistics getStatistics() {
+        return null;
+    }
+    
     /** as a result of this call the Player should as soon as possible
      * return a value in getMove().
      */
@@ -0,0 +1,133 @@
+package nl.tue.s2id90.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistics of the search of a move, or, after add(), of several searches.
+ * The counters are plain public fields, so that a search can update them
+ * without overhead; a search should only update its own statistics object.
+ * @see Player#getStatistics()
+ */
+public class SearchStatistics {
+    /** nodes searched by the main search and by quiescence search. */
+    public long nodes, qnodes;
+
+    /** nodes in which a move caused a beta cutoff; the first move did so in firstMoveCutoffs of them. */
+    public long betaCutoffs, firstMoveCutoffs;
+
+    /** transposition table look ups, and the number that found the position. */
+    public long ttProbes, ttHits;
+
+    /** largest distance from the root that was searched. */
+    public int selDepth;
+
+    private int searches, depth;
+    private long timeNanos;
+    private final List<Long> iterationNanos = new ArrayList<>();
+
+    /**
+     * records that an iteration of iterative deepening was completed.
+     * @param depth nominal depth of the iteration
+     * @param nanos time of the iteration
+     */
+    public void iterationFinished(int depth, long nanos) {
+        this.depth = depth;
+        iterationNanos.add(nanos);
+    }
+
+    /**
+     * records the end of the search.
+     * @param nanos total time of the search
+     */
+    public void searchFinished(long nanos) {
+        searches = 1;
+        timeNanos = nanos;
+    }
+
+    /**
+     * adds the counters of other, e.g. of a helper thread, to this.
+     * @param other statistics of a search of the same move
+     */
+    public void addCounters(SearchStatistics other) {
+        nodes += other.nodes;
+        qnodes += other.qnodes;
+        betaCutoffs += other.betaCutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        ttProbes += other.ttProbes;
+        ttHits += other.ttHits;
+        selDepth = Math.max(selDepth, other.selDepth);
+    }
+
+    /**
+     * adds the statistics of another search to this, e.g. to get the
+     * totals of a game or tournament; iteration times are not kept.
+     * @param other statistics of another search
+     */
+    public synchronized void add(SearchStatistics other) {
+        addCounters(other);
+        searches += other.searches;
+        depth += other.depth;
+        timeNanos += other.timeNanos;
+        iterationNanos.clear();
+    }
+
+    /** @return number of searches these statistics are of. */
+    public int getSearches() {
+        return searches;
+    }
+
+    /** @return completed depth, averaged over the searches. */
+    public double getDepth() {
+        return searches == 0 ? depth : (double) depth / searches;
+    }
+
+    /** @return total search time in nanoseconds. */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /** @return time of each completed iteration of a single search, in nanoseconds. */
+    public List<Long> getIterationNanos() {
+        return Collections.unmodifiableList(iterationNanos);
+    }
+
+    /** @return nodes, including quiescence nodes, per second. */
+    public double getNodesPerSecond() {
+        return timeNanos == 0 ? 0 : (nodes + qnodes) * 1e9 / timeNanos;
+    }
+
+    /** @return fraction of the nodes that had a beta cutoff. */
+    public double getBetaCutoffRate() {
+        return fraction(betaCutoffs, nodes);
+    }
+
+    /** @return fraction of the beta cutoffs caused by the first move. */
+    public double getFirstMoveCutoffRate() {
+        return fraction(firstMoveCutoffs, betaCutoffs);
+    }
+
+    /** @return fraction of the transposition table look ups that found the position. */
+    public double getTTHitRate() {
+        return fraction(ttHits, ttProbes);
+    }
+
+    private static double fraction(long n, long total) {
+        return total == 0 ? 0.0 : (double) n / total;
+    }
+
+    /** @return short summary, e.g. "depth 9, 1.2 Mnps". */
+    public String toShortString() {
+        return String.format("depth %.1f, %.1f Mnps", getDepth(), getNodesPerSecond() / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth=%.1f, seldepth=%d, nodes=%d, qnodes=%d, nps=%.0f, "
+                + "cutoffs=%.1f%%, first move=%.1f%%, tt hits=%.1f%%, time=%.1f ms",
+                getDepth(), selDepth, nodes, qnodes, getNodesPerSecond(),
+                100 * getBetaCutoffRate(), 100 * getFirstMoveCutoffRate(),
+                100 * getTTHitRate(), timeNanos / 1e6);
+    }
+}
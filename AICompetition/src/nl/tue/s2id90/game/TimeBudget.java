@@ -0,0 +1,56 @@
+package nl.tue.s2id90.game;
+
+/**
+ * The time a player has for a move: an absolute deadline, at which the
+ * player is stopped, and optionally the time left on the player's game clock.
+ * Times are in System.nanoTime() units.
+ * @see Player#getMove(GameState, TimeBudget)
+ */
+public final class TimeBudget {
+    private final long deadlineNanos;
+    private final long clockNanos;
+
+    /**
+     * @param deadlineNanos time at which the player is stopped, in
+     *                      System.nanoTime() units
+     * @param clockNanos    time left on the game clock of the player,
+     *                      including this move; negative if there is no clock
+     */
+    public TimeBudget(long deadlineNanos, long clockNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.clockNanos = clockNanos;
+    }
+
+    /** @return time at which the player is stopped, in System.nanoTime() units. */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /** @return nanoseconds left until the deadline; negative when it has passed. */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /** @return whether or not the deadline has passed. */
+    public boolean hasPassed() {
+        return remainingNanos() <= 0;
+    }
+
+    /** @return whether or not the player has a game clock. */
+    public boolean hasClock() {
+        return clockNanos >= 0;
+    }
+
+    /** @return time left on the game clock, including this move, when the
+     * move was requested; negative if there is no clock.
+     */
+    public long getClockNanos() {
+        return clockNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f ms left%s", remainingNanos() / 1e6,
+                hasClock() ? String.format(", clock %.1f ms", clockNanos / 1e6) : "");
+    }
+}
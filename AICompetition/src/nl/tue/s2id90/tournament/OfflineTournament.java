@@ -9,14 +9,25 @@ import static java.lang.String.format;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -27,6 +38,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import static java.util.stream.Collectors.groupingBy;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
@@ -38,6 +50,8 @@ import net.xeoh.plugins.base.options.addpluginsfrom.OptionReportAfter;
 import net.xeoh.plugins.base.util.PluginManagerUtil;
 import net.xeoh.plugins.base.util.uri.ClassURI;
 import nl.tue.s2id90.contest.PlayerProvider;
+import nl.tue.s2id90.contest.util.DeadlineService;
+import nl.tue.s2id90.contest.util.SearchExecutor;
 import nl.tue.s2id90.contest.util.SearchTask;
 import nl.tue.s2id90.contest.util.TimedSearchTask;
 import nl.tue.s2id90.draughts.DraughtsPlayerProvider;
@@ -47,6 +61,7 @@ import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 import nl.tue.s2id90.draughts.player.HumanPlayer;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchStatistics;
 import org10x10.dam.game.Move;
 
 /**
@@ -69,6 +84,16 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
     
     Supplier<S> constructState;    // method to create initial state
     
+    /** provider of each player; players without one are shared by all their games. */
+    private final Map<P, PP> providers = new IdentityHashMap<>();
+    
+    /** search statistics of all moves of each player. */
+    private final Map<P, SearchStatistics> searchStatistics = new ConcurrentHashMap<>();
+    
+    /** number of matches played at the same time; set with -Dtournament.threads=n. */
+    static final int THREADS = Integer.getInteger("tournament.threads",
+            Runtime.getRuntime().availableProcessors());
+    
     public static void main(String[] args) {
         // create offline tournament
         OfflineTournament<DraughtsPlayer,DraughtsPlayerProvider,Move,DraughtsState> ot = new OfflineTournament<>();
@@ -105,33 +130,47 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
                 .limit(10)
                 .collect(Collectors.toList());
         
+        // remember the providers, they create a new player for every game
+        plugins.forEach(pp -> pp.getPlayers().forEach(p -> providers.put(p, pp)));
+        
         // play tournament
         playDoubleRoundRobinTournament(
                 players
                 , 100                                          // max number of moves in a game
                 , 200                                         // max milliseconds/move
+                , THREADS                                     // matches played at the same time
         );
     }
     
     /**
-     * Plays a double round robin tournament and prints statistics.
+     * Plays a double round robin tournament, one match at a time, and prints statistics.
      * @param players          a list of players
      * @param maxMove          games have maxMove number of moves
      * @param maxTimeInMs      maximum time per move in milliseconds
      */
     public void playDoubleRoundRobinTournament(List<P> players, int maxMove, int maxTimeInMs) {
-        List<Result<P,M>> results = players.stream()
-            .flatMap(                                      // play all matches and pick up the results
+        playDoubleRoundRobinTournament(players, maxMove, maxTimeInMs, 1);
+    }
+    
+    /**
+     * Plays a double round robin tournament and prints statistics.
+     * Results, statistics and the zip file are the same as when the matches
+     * are played one at a time.
+     * @param players          a list of players
+     * @param maxMove          games have maxMove number of moves
+     * @param maxTimeInMs      maximum time per move in milliseconds
+     * @param threads          maximum number of matches played at the same time
+     */
+    public void playDoubleRoundRobinTournament(List<P> players, int maxMove, int maxTimeInMs, int threads) {
+        List<Match> matches = players.stream()
+            .flatMap(                                      // all matches, in a fixed order
                 p0->players.stream()
                            .filter(p1->p1!=p0)             // avoid players playing against themselves
-                           .map( p1 -> playMatch(p0,p1,maxMove,maxTimeInMs) )
-            ).peek(result->                               // print results
-                System.err.format("#%4d %10s %25s - %25s\n",
-                        result.index++,
-                        ""+result.getR0()+" - " + result.getR1(), 
-                        result.getP0().getName(), result.getP1().getName()
-                )                    
-            ).collect(Collectors.toList());               // collect all results in a list
+                           .map( p1 -> new Match(atomicIndex.addAndGet(1), p0, p1) )
+            ).collect(Collectors.toList());
+        
+        // play all matches and pick up the results
+        List<Result<P,M>> results = playMatches(matches, maxMove, maxTimeInMs, threads);
         
         // print statistics
         System.err.println("\n# stats 1 ----------------------------------------");
@@ -146,6 +185,11 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
         String stats = statistics3(results);
         System.err.println(stats);
         
+        // print search statistics and how late the searches were stopped
+        System.err.println("\n# search statistics ------------------------------");
+        printSearchStatistics();
+        System.err.println("\n# " + DeadlineService.getInstance());
+        
         // zip tournament results and stats
         try {
             toZip(results,stats);
@@ -154,22 +198,117 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
         }
     }
     
+    /** a match that still has to be played. */
+    private class Match {
+        final int index;            // index of the match
+        final P white, black;
+        
+        Match(int index, P white, P black) {
+            this.index = index;
+            this.white = white;
+            this.black = black;
+        }
+    }
+    
+    /**
+     * Plays the given matches on a pool of threads. A shared player plays at
+     * most one match at a time, since players keep search state in their
+     * fields; players of which the provider creates new instances play in
+     * several matches at the same time, and share the cores. Results are
+     * printed in the order of the matches.
+     * @param matches      matches to play
+     * @param maxMove      maximum number of allowed moves
+     * @param maxTimeinMS  maximum time in milliseconds allowed per move
+     * @param threads      maximum number of matches played at the same time
+     * @return results, in the same order as matches
+     */
+    private List<Result<P,M>> playMatches(List<Match> matches, int maxMove, int maxTimeinMS, int threads) {
+        List<Result<P,M>> results = new ArrayList<>(Collections.nCopies(matches.size(), null));
+        List<Integer> waiting = IntStream.range(0, matches.size()).boxed()
+                .collect(Collectors.toCollection(LinkedList::new));
+        Map<Future<Result<P,M>>, Integer> running = new HashMap<>();
+        Set<P> playing = new HashSet<>();  // shared players in a running match
+        int printed = 0;                   // results.get(0..printed-1) are printed
+        // the player to move of each running match may use its share of the cores
+        int playerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<Result<P,M>> finished = new ExecutorCompletionService<>(pool);
+        try {
+            while (!waiting.isEmpty() || !running.isEmpty()) {
+                // start the first waiting matches of which both players are free
+                for (Iterator<Integer> it = waiting.iterator(); it.hasNext() && running.size() < threads; ) {
+                    int i = it.next();
+                    Match m = matches.get(i);
+                    if (playing.contains(m.white) || playing.contains(m.black)) continue;
+                    if (isShared(m.white)) playing.add(m.white);
+                    if (isShared(m.black)) playing.add(m.black);
+                    it.remove();
+                    running.put(finished.submit(() -> playMatch(m, maxMove, maxTimeinMS, playerThreads)), i);
+                }
+                
+                // wait for a match to finish
+                Future<Result<P,M>> f = finished.take();
+                int i = running.remove(f);
+                results.set(i, f.get());
+                playing.remove(matches.get(i).white);
+                playing.remove(matches.get(i).black);
+                
+                // print results that are complete up to here
+                for (; printed < results.size() && results.get(printed) != null; printed++) {
+                    Result<P,M> result = results.get(printed);
+                    System.err.format("#%4d %10s %25s - %25s\n",
+                        result.index++,
+                        ""+result.getR0()+" - " + result.getR1(), 
+                        result.getP0().getName(), result.getP1().getName()
+                    );
+                }
+            }
+        } catch (ExecutionException ex) {        // a match failed: stop, like a serial run
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+    
+    /** @return whether or not player p is shared by all its games. */
+    private boolean isShared(P p) {
+        PP provider = providers.get(p);
+        return provider == null || !provider.createsNewPlayers();
+    }
+    
+    /** @return the player that plays a single game for p, with the given
+     * number of threads. */
+    private P newPlayer(P p, int threads) {
+        PP provider = providers.get(p);
+        return provider == null ? p : provider.newPlayer(p, threads);
+    }
+    
     /**
-     * Plays a game between the players p0 and p1.
-     * @param p0   white player
-     * @param p1   black player
+     * Plays a game between the players of match m. The game is played by
+     * new instances of the players, if their provider creates them; the
+     * result refers to the players of m.
+     * @param m    match with the white and black player
      * @param maxMove   maximum number of allowed moves
      * @param maxTimeinMS  maximum time in milliseconds allowed per move
+     * @param threads   number of threads each new player may use
      * @return Result of the game, contains a.o. list of moves and result of the match.
      */
-    private Result<P,M> playMatch(P p0, P p1, int maxMove, int maxTimeinMS) {
+    private Result<P,M> playMatch(Match m, int maxMove, int maxTimeinMS, int threads) {
+        P p0 = m.white, p1 = m.black;
+        P white = newPlayer(p0, threads), black = newPlayer(p1, threads);
         S state = constructState.get();    // create an initial state. 
         List<M> moves = new ArrayList<>(); // start with empty move list
-        int index = atomicIndex.addAndGet(1);               // increase match index
+        int index = m.index;               // match index
         int moveCount=0;                   // number of moves made
         while (moveCount<maxMove && !state.isEndState()) {
-            P player = (state.isWhiteToMove()?p0:p1);                // current player
+            P player = (state.isWhiteToMove()?white:black);          // current player
             M move = getComputerMove(player, state, maxTimeinMS);    // get move 
+            addSearchStatistics(state.isWhiteToMove()?p0:p1, player.getStatistics());
             
             // check for illegal moves
             if (move==null||!state.getMoves().contains(move)) { // illegal move
@@ -196,6 +335,34 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
         }
     }
     
+    /** adds the statistics of a search of player p, if any, to its totals. */
+    private void addSearchStatistics(P p, SearchStatistics s) {
+        if (s != null) {
+            searchStatistics.computeIfAbsent(p, k -> new SearchStatistics()).add(s);
+        }
+    }
+    
+    /** prints per player the totals of the search statistics of all its moves, like:
+     * <pre>
+     *                TI_v2	 4312  9.3  24  1.85   41.2  87.5  23.9
+     * </pre>
+     * with the number of moves, mean depth, largest selective depth, million
+     * nodes per second, and beta cutoff, first move cutoff and tt hit percentages.
+     */
+    private void printSearchStatistics() {
+        System.err.format("#%20s\t%5s %4s %3s %5s %6s %5s %5s\n",
+                "", "moves", "dpt", "sel", "Mnps", "cut%", "1st%", "tt%");
+        searchStatistics.entrySet().stream()
+            .sorted(Comparator.comparing(e -> e.getKey().getName()))
+            .forEach(e -> {
+                SearchStatistics s = e.getValue();
+                System.err.format("#%20s\t%5d %4.1f %3d %5.2f %6.1f %5.1f %5.1f\n",
+                    e.getKey().getName(), s.getSearches(), s.getDepth(), s.selDepth,
+                    s.getNodesPerSecond() / 1e6, 100 * s.getBetaCutoffRate(),
+                    100 * s.getFirstMoveCutoffRate(), 100 * s.getTTHitRate());
+            });
+    }
+    
     /** get computer move of player p in game state gs and with 
      *  maxTime milliseconds computing time.
      * 
@@ -205,25 +372,19 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
      * @return           computed Move
      */
     private M getComputerMove(final Player player, final S gs, final int maxTime) {
-        Semaphore flag = new Semaphore(0);  // semaphore that is released when move is found
         Object[] moves= new Object[1];      // create array to store search result
         SearchTask<M, Long, S> searchTask;  // Search task that computes next move in state gs
                                             // for player taking atmost maxTime milliseconds.
-        searchTask = new TimedSearchTask<M, Long, S>(player, gs, maxTime) {
-            // when searching is finished, store result in array moves and release semaphore.
-            @Override public void done(M m) { moves[0]=m; flag.release(); }
+        // search in this thread: the match already has a thread of its own,
+        // and execute() only returns when the search is finished.
+        searchTask = new TimedSearchTask<M, Long, S>(player, gs, maxTime, SearchExecutor.CALLER) {
+            // when searching is finished, store result in array moves.
+            @Override public void done(M m) { moves[0]=m; }
         };
         
         // execute search task
         searchTask.execute();
         
-        // wait until search task finishes
-        try {
-            flag.acquire();
-        } catch (InterruptedException ex) {
-            Logger.getLogger(OfflineTournament.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        
         // return the found move
         return (M)moves[0];
     }
@@ -0,0 +1,69 @@
+package nl.tue.s2id90.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.benchmark.Positions.Position;
+import nl.tue.s2id90.draughts.BitboardDraughtsState;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.Perft;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org10x10.dam.game.BoardState;
+
+/**
+ * Move generation: perft of a fixed position to its perft depth, using
+ * getMoves, doMove and undoMove of a DraughtsState.
+ *
+ * <p>generator=REFERENCE is the org10x10 MoveGenerator behind DraughtsState
+ * (with MoveFilterKiller for killer rules), BITBOARD is BitboardDraughtsState.
+ * @see Perft
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+    public enum Generator { REFERENCE, BITBOARD }
+
+    @Param
+    public Position position;
+
+    @Param
+    public Generator generator;
+
+    @Param({"true", "false"})
+    public boolean killerRules;
+
+    private DraughtsState state;
+    private int depth;
+    private long expected;
+
+    @Setup
+    public void setUp() {
+        BoardState bs = position.getBoardState();
+        state = generator == Generator.BITBOARD
+                ? new BitboardDraughtsState(bs, killerRules)
+                : new DraughtsState(bs, killerRules);
+        depth = position.getPerftDepth();
+        expected = Perft.perft(new BitboardDraughtsState(bs, killerRules), depth);
+    }
+
+    @Benchmark
+    public long perft() {
+        long leaves = Perft.perft(state, depth);
+        if (leaves != expected) {
+            throw new IllegalStateException("perft " + leaves + " != " + expected);
+        }
+        return leaves;
+    }
+}
@@ -0,0 +1,75 @@
+package nl.tue.s2id90.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.draughts.BitboardDraughtsState;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+
+/**
+ * Fixed positions used by the benchmarks. Positions are given in PDN FEN
+ * notation, so that they can be pasted into a PDN viewer.
+ */
+public final class Positions {
+
+    /** the positions on which perft and search are measured. */
+    public enum Position {
+        /** the initial position. */
+        OPENING("W:W31,32,33,34,35,36,37,38,39,40,41,42,43,44,45,46,47,48,49,50"
+                + ":B1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20", 6),
+        /** a closed middlegame with few moves per ply. */
+        MIDDLEGAME("W:W25,27,28,30,32,33,34,35,37,38,39,40,42,43,44,45,47,48,49"
+                + ":B1,2,3,4,6,7,8,9,11,12,13,14,16,17,18,19,20,23,24", 8),
+        /** two kings on each side; killer and international rules differ. */
+        KINGS("W:WK46,K28,33,38,41:BK5,K23,12,17,21", 6),
+        /** long king captures of up to eleven pieces. */
+        CAPTURES("W:WK47,K11,33:B7,9,18,19,20,28,29,30,38,39,40,42", 9);
+
+        private final String fen;
+        private final int perftDepth;
+
+        Position(String fen, int perftDepth) {
+            this.fen = fen;
+            this.perftDepth = perftDepth;
+        }
+
+        /** @return this position as a new BoardState. */
+        public BoardState getBoardState() {
+            return PDNUtil.Fen2BoardState(fen);
+        }
+
+        /** @return depth for which perft takes some tens of milliseconds. */
+        public int getPerftDepth() {
+            return perftDepth;
+        }
+
+        public String getFen() {
+            return fen;
+        }
+    }
+
+    private Positions() { }
+
+    /**
+     * @return n positions that occur in random games from the initial
+     *         position, none of which is an end state. The same seed gives
+     *         the same positions.
+     */
+    public static List<DraughtsState> randomPositions(int n, long seed) {
+        Random random = new Random(seed);
+        List<DraughtsState> positions = new ArrayList<>(n);
+        while (positions.size() < n) {
+            DraughtsState s = new BitboardDraughtsState();
+            int plies = 10 + random.nextInt(60);
+            for (int i = 0; i < plies && !s.isEndState(); i++) {
+                List<Move> moves = s.getMoves();
+                s.doMove(moves.get(random.nextInt(moves.size())));
+            }
+            if (!s.isEndState()) positions.add(s);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,64 @@
+package nl.tue.s2id90.group93;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.benchmark.Positions;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of TI_v2.evaluate on positions from random games: full() looks
+ * up the regions of the board of a BitboardDraughtsState in the pattern
+ * tables, incremental() reads the totals of an EvaluatedDraughtsState.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluateBenchmark {
+    private static final int POSITIONS = 1000;
+
+    private TI_v2 player;
+    private List<DraughtsState> bitboard;
+    private List<DraughtsState> evaluated;
+
+    @Setup
+    public void setUp() {
+        player = new TI_v2(1);
+        bitboard = Positions.randomPositions(POSITIONS, 2090L);
+        evaluated = new ArrayList<>(POSITIONS);
+        for (DraughtsState s : bitboard) {
+            evaluated.add(new EvaluatedDraughtsState(s));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void full(Blackhole bh) {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(player.evaluate(bitboard.get(i)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void incremental(Blackhole bh) {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(player.evaluate(evaluated.get(i)));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package nl.tue.s2id90.group93;
+
+import static java.lang.Integer.MAX_VALUE;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.benchmark.Positions.Position;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fixed-depth single-threaded TI_v2 search. Besides searches per second,
+ * JMH reports the secondary result "nodes": searched nodes per second.
+ * Every search starts with an empty transposition table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+    @Param
+    public Position position;
+
+    @Param("6")
+    public int depth;
+
+    private DraughtsState start;
+    private CountingPlayer player;
+
+    /** secondary result: number of nodes, reported per second. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    /** TI_v2 that counts the nodes it visits. */
+    static class CountingPlayer extends TI_v2 {
+        long nodes;
+
+        CountingPlayer() {
+            super(MAX_VALUE);
+        }
+
+        @Override
+        int negamax(DraughtsNode node, int alpha, int beta, int depth, int ply)
+                throws AIStoppedException {
+            nodes++;
+            return super.negamax(node, alpha, beta, depth, ply);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUpPosition() {
+        start = new DraughtsState(position.getBoardState(), true);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpPlayer() {
+        player = new CountingPlayer();    // new, empty transposition table
+    }
+
+    @Benchmark
+    public int search(Nodes counter) throws AIStoppedException {
+        DraughtsNode node = new DraughtsNode(new EvaluatedDraughtsState(start));
+        int value = player.alphaBeta(node, -MAX_VALUE, MAX_VALUE, depth);
+        counter.nodes += player.nodes;
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package nl.tue.s2id90.group93;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used cache of decompressed blocks of endgame files, shared
+ * by the threads that probe the database. It is split into segments with
+ * their own lock, so that threads that probe different blocks do not wait
+ * for each other; a block is decompressed outside the lock.
+ * @see EndgameFile
+ */
+final class BlockCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /** number of lookups and of lookups that had to decompress a block. */
+    private volatile long lookups, misses;
+
+    /**
+     * @param capacity number of blocks that are kept
+     */
+    BlockCache(int capacity) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(1, capacity / SEGMENTS));
+        }
+    }
+
+    /**
+     * @param key    identifies the block, see EndgameFile
+     * @param loader decompresses the block if it is not in the cache
+     * @return the block
+     */
+    byte[] get(long key, Supplier<byte[]> loader) {
+        Segment segment = segments[(int) (key ^ key >>> 32) & (SEGMENTS - 1)];
+        byte[] block;
+        synchronized (segment) {
+            block = segment.get(key);
+        }
+        lookups++;   // only statistics: lost updates do not matter
+        if (block == null) {
+            misses++;
+            block = loader.get();
+            synchronized (segment) {
+                segment.put(key, block);
+            }
+        }
+        return block;
+    }
+
+    /** @return fraction of the lookups that found their block in the cache. */
+    double hitRate() {
+        return lookups == 0 ? 0 : 1 - (double) misses / lookups;
+    }
+
+    /** blocks in order of use, the least recently used first. */
+    @SuppressWarnings("serial")   // a cache is never serialized
+    private static final class Segment extends LinkedHashMap<Long, byte[]> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(2 * capacity, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package nl.tue.s2id90.group93;
 
 import static java.lang.Integer.MAX_VALUE;
-import static java.lang.Integer.MIN_VALUE;
 import java.util.Collections;
 import java.util.List;
+import nl.tue.s2id90.draughts.BoardGeometry;
 import nl.tue.s2id90.draughts.DraughtsState;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 import org10x10.dam.game.Move;
@@ -32,8 +32,10 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
         bestValue = 0;
         DraughtsNode node = new DraughtsNode(s.clone());    // the root of the search tree
         try {
-            // compute bestMove and bestValue in a call to alphabeta
-            bestValue = alphaBeta(node, MIN_VALUE, MAX_VALUE, maxSearchDepth);
+            // compute bestMove and bestValue in a call to alphabeta; its
+            // value is for the player to move, the GUI shows it for white
+            int value = alphaBeta(node, -MAX_VALUE, MAX_VALUE, maxSearchDepth);
+            bestValue = s.isWhiteToMove() ? value : -value;
             
             // store the bestMove found uptill now
             // NB this is not done in case of an AIStoppedException in alphaBeat()
@@ -76,13 +78,13 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
         return moves.isEmpty()? null : moves.get(0);
     }
     
-    /** Implementation of alphabeta that automatically chooses the white player
-     *  as maximizing player and the black player as minimizing player.
+    /** Implementation of negamax alphabeta: values are relative to the
+     *  player that is to move in node.
      * @param node contains DraughtsState and has field to which the best move can be assigned.
-     * @param alpha
+     * @param alpha at least -MAX_VALUE, so that it can be negated
      * @param beta
      * @param depth maximum recursion Depth
-     * @return the computed value of this node
+     * @return the computed value of this node, for the player to move
      * @throws AIStoppedException
      **/
     int alphaBeta(DraughtsNode node, int alpha, int beta, int depth)
@@ -91,23 +93,23 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
         //iterative deepening
         int curr_depth = 1;
         int value = 0;
+        boolean white = node.getState().isWhiteToMove();
         while (curr_depth <= depth) {
-            if (node.getState().isWhiteToMove()) {
-                value = alphaBetaMax(node, alpha, beta, curr_depth);
-            } else  {
-                value = alphaBetaMin(node, alpha, beta, curr_depth);
-            }
+            value = negamax(node, alpha, beta, curr_depth);
             System.err.format(
                 "%s: depth= %2d, best move = %5s, value=%d\n", 
-                this.getClass().getSimpleName(),curr_depth, node.getBestMove(), value
+                this.getClass().getSimpleName(),curr_depth, node.getBestMove(),
+                white ? value : -value
             );
             curr_depth++;
         }
         return value;
     }
     
-    /** Does an alphabeta computation with the given alpha and beta
-     * where the player that is to move in node is the minimizing player.
+    /** Does a negamax alphabeta computation with the given alpha and beta,
+     * which are, like the result, relative to the player that is to move in
+     * node: that player maximizes, and the value of a child is minus its
+     * value for the opponent.
      * 
      * <p>Typical pieces of code used in this method are:
      *     <ul> <li><code>DraughtsState state = node.getState()</code>.</li>
@@ -123,13 +125,13 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
      * @return the compute value of this node
      * @throws AIStoppedException thrown whenever the boolean stopped has been set to true.
      */
-     int alphaBetaMin(DraughtsNode node, int alpha, int beta, int depth)
+    int negamax(DraughtsNode node, int alpha, int beta, int depth)
             throws AIStoppedException {
         if (stopped) { stopped = false; throw new AIStoppedException(); }
         DraughtsState state = node.getState();
         if (depth == 0) {
             int val = evaluate(state);
-            return val;
+            return state.isWhiteToMove() ? val : -val;
         }
         List<Move> moves = state.getMoves();
         if (!moves.isEmpty()) {
@@ -139,38 +141,7 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
             Move bestMove = moves.remove(0); //get first move
             state.doMove(bestMove); //try move
             DraughtsNode newNode = new DraughtsNode(state);
-            int x = alphaBetaMax(newNode, alpha, beta, depth-1); //recurse
-            state.undoMove(bestMove); //undo move
-            if (x < beta) {   //not <= in case of the pruning
-                //System.err.println("set move at depth: " + depth);
-                node.setBestMove(bestMove);
-                beta = x;
-            }
-            if (beta <= alpha) {
-                return alpha;
-            }
-        }
-
-        return beta;
-     }
-    
-    int alphaBetaMax(DraughtsNode node, int alpha, int beta, int depth)
-            throws AIStoppedException {
-        if (stopped) { stopped = false; throw new AIStoppedException(); }
-        DraughtsState state = node.getState();
-        if (depth == 0) {
-            int val = evaluate(state);
-            return val;
-        }
-        List<Move> moves = state.getMoves();
-        if (!moves.isEmpty()) {
-            node.setBestMove(moves.get(0)); //set first move as best, in case of timeout
-        }
-        while (!moves.isEmpty()) {
-            Move bestMove = moves.remove(0); //get first move
-            state.doMove(bestMove); //try move
-            DraughtsNode newNode = new DraughtsNode(state);
-            int x = alphaBetaMin(newNode, alpha, beta, depth-1); //recurse
+            int x = -negamax(newNode, -beta, -alpha, depth-1); //recurse
             state.undoMove(bestMove); //undo move
             if (x > alpha) {   //not >= in case of the pruning
                 //System.err.println("set move at depth: " + depth);
@@ -188,7 +159,7 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
     }
 
     /** A method that evaluates the given state. */
-    // Evaluates a state using multiple methods
+    // Evaluates a state for white using multiple methods
     int evaluate(DraughtsState state) { 
         int[] pieces = state.getPieces();
         int[] p = new int[pieces.length];
@@ -351,7 +322,7 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
         for(int i = 1; i < p.length; i ++) {
             boolean loner = true;
             boolean white = p[i] == 1 || p[i] == 3;
-            int[] neighbors = neighborSquares(i); //get neighbor squares of piece
+            int[] neighbors = BoardGeometry.neighbours(i); //get neighbor squares of piece
             for(int k = 0; k < neighbors.length; k++) {
                 if (white) {
                     if (p[neighbors[k]] == 1 || p[neighbors[k]] == 3) { //check for white neighbors
@@ -381,7 +352,7 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
         for(int i = 1; i < p.length; i ++) {
             int white_neighbors = 0;
             int black_neighbors = 0;
-            int[] neighbors = neighborSquares(i);
+            int[] neighbors = BoardGeometry.neighbours(i);
             
             if (p[i] == 0) {
                 for(int k = 0; k < neighbors.length; k++) {
@@ -401,65 +372,4 @@ public class DraughtsPlayerTI  extends DraughtsPlayer{
         }
         return holes_value;
     }
-
-    /** Computes the neighbor squares of a given piece
-     * This is a support method for loner and holes value
-     * @param i contains the square of the piece whose neighbors we want to know
-     * @return the list of indices of the neighboring squares
-     */
-    int[] neighborSquares(int i) {
-        //find row
-        int row = ((i-1)/5) + 1; //final +1 is to get rows from 1-10 for rows 1-10
-        //find column
-        int column = i % 10; //have columns 0 - 9
-        if (column == 0) {column = 10;} //columns 1-10
-
-        //determine number of neighbors, can have 1, 2, or 4
-        int num_neighbors = 0;
-        if (row == 1 || row == 10) {
-            num_neighbors += 1; //has 1 neighbouring row
-        } else {
-            num_neighbors += 2; //has 2 neighbouring rows
-        }
-        if (column == 5 || column == 6) { //has 1 neighbouring column
-            //stays the same
-        } else { //has 2 neighbouring columns
-            num_neighbors = num_neighbors * 2;
-        }
-
-        //create neighbors array
-        int[] neighbors = new int[num_neighbors];
-
-        if (num_neighbors == 1) { //corner cases, only 2
-            if (i == 5) { //i = 5
-                neighbors[0] = 10;
-            } else { // i = 46
-                neighbors[0] = 41;
-            }
-        } else if (num_neighbors == 2) { //edge cases, easier without corners
-            if (column < 5) { //i = 1-4
-                neighbors[0] = i + 5;
-                neighbors[1] = i + 6;
-            } else if (column > 6) { //i = 47-50
-                neighbors[0] = i - 6;
-                neighbors[1] = i - 5;
-            } else { //i = 6, 16, 26, 36, 15, 25, 35, 45
-                neighbors[0] = i - 5;
-                neighbors[1] = i + 5;
-            }
-        } else { //center cases
-            if (column > 6) {
-                neighbors[0] = i - 6; //top left
-                neighbors[1] = i - 5; //top right
-                neighbors[2] = i + 4; //bottom left
-                neighbors[3] = i + 5; //bottom right
-            } else if (column < 5) {
-                neighbors[0] = i - 5; //top left
-                neighbors[1] = i - 4; //top right
-                neighbors[2] = i + 5; //bottom left
-                neighbors[3] = i + 6; //bottom right
-            }
-        }
-        return neighbors;
-    }
 }
@@ -0,0 +1,253 @@
+package nl.tue.s2id90.group93;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+import nl.tue.s2id90.draughts.BitboardDraughtsState;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Win/loss/draw databases of endgames with few pieces, as written by
+ * EndgameGenerator: per rules and per slice (see EndgameIndex) an
+ * EndgameFile with the result of every position for the player to move and
+ * its distance to the end of the game in plies. The files are mapped into
+ * memory, so they are not read into the heap, and are shared by all threads
+ * and games, like the cache of decompressed blocks; a slice is mapped when
+ * it is probed for the first time.
+ *
+ * <p>Positions in which the player to move has no pieces are lost; they are
+ * not in the files.
+ * @see EndgameGenerator
+ */
+final class EndgameDatabase {
+    /** results, for the player to move; UNKNOWN for positions that are not
+     * in the database. */
+    static final int UNKNOWN = 0, WIN = 1, LOSS = 2, DRAW = 3;
+
+    /** largest distance that is stored; longer distances are stored as this. */
+    static final int MAX_DISTANCE = 254;
+
+    /** system property with the directory of the database TI_v2 uses. */
+    static final String DIRECTORY_PROPERTY = "ti.endgames";
+
+    /** extension of the files of the slices. */
+    static final String EXTENSION = ".egdb";
+
+    /** number of decompressed blocks that are cached: 20 MB. */
+    static final int CACHE_BLOCKS = 16384;
+
+    private static final Map<Boolean, EndgameDatabase> DEFAULTS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final String prefix;
+    private final int maxPieces;
+    private final BlockCache cache = new BlockCache(CACHE_BLOCKS);
+
+    /** largest number of pieces of one kind in a slice, plus one. */
+    private static final int MAX_COUNT = 9;
+
+    /** the slices that were probed, by their numbers of white men, white
+     * kings, black men and black kings; empty for absent files. */
+    private final AtomicReferenceArray<Optional<EndgameFile>> files =
+            new AtomicReferenceArray<>(MAX_COUNT * MAX_COUNT * MAX_COUNT * MAX_COUNT);
+
+    /**
+     * @param directory   directory with the files
+     * @param killerRules whether the database of killer rules or of
+     *                    international rules is used
+     * @throws IOException if the directory can not be read
+     */
+    EndgameDatabase(Path directory, boolean killerRules) throws IOException {
+        this.directory = directory;
+        this.prefix = rulesName(killerRules) + "-";
+        int max = 0;
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                max = files.map(p -> p.getFileName().toString())
+                        .filter(n -> n.startsWith(prefix) && n.endsWith(EXTENSION))
+                        .mapToInt(n -> n.substring(prefix.length(), n.length() - EXTENSION.length())
+                                .chars().map(c -> c - '0').sum())
+                        .max().orElse(0);
+            }
+        }
+        // the files are found by their numbers of pieces, see file()
+        maxPieces = Math.min(max, MAX_COUNT - 1);
+    }
+
+    /** @return the database in the directory named by system property
+     * ti.endgames, or null if it is not set or has no files for the rules. */
+    static EndgameDatabase getDefault(boolean killerRules) {
+        String dir = System.getProperty(DIRECTORY_PROPERTY);
+        if (dir == null) return null;
+        EndgameDatabase db = DEFAULTS.computeIfAbsent(killerRules, k -> {
+            try {
+                return new EndgameDatabase(Paths.get(dir), k);
+            } catch (IOException ex) {
+                System.err.println("no endgame database: " + ex);
+                return null;
+            }
+        });
+        return db == null || db.getMaxPieces() == 0 ? null : db;
+    }
+
+    /** @return "killer" or "international". */
+    static String rulesName(boolean killerRules) {
+        return killerRules ? "killer" : "international";
+    }
+
+    /** @return the name of the file of slice index. */
+    static String fileName(boolean killerRules, EndgameIndex index) {
+        return rulesName(killerRules) + "-" + index.getName() + EXTENSION;
+    }
+
+    /** @return the largest number of pieces of a slice in the database. */
+    int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /** @return number of pieces on the board of s; cheap for bitboards. */
+    static int countPieces(DraughtsState s) {
+        if (s instanceof BitboardDraughtsState) {
+            BitboardDraughtsState b = (BitboardDraughtsState) s;
+            return Long.bitCount(b.getWhite() | b.getBlack());
+        }
+        int[] pieces = s.getPieces();
+        int n = 0;
+        for (int f = 1; f <= 50; f++) {
+            if (pieces[f] != DraughtsState.EMPTY) n++;
+        }
+        return n;
+    }
+
+    /**
+     * probes a position given by bitboards, without allocating once its
+     * slice is open and its block is cached.
+     * @param white       white pieces, in the bits of BitboardDraughtsState
+     * @param black       black pieces
+     * @param kings       kings of both colours
+     * @param whiteToMove player to move
+     * @return the entry of the position: see result(int) and distance(int)
+     */
+    int entry(long white, long black, long kings, boolean whiteToMove) {
+        int wk = Long.bitCount(white & kings), wm = Long.bitCount(white) - wk;
+        int bk = Long.bitCount(black & kings), bm = Long.bitCount(black) - bk;
+        if (wm + wk + bm + bk > maxPieces) return UNKNOWN;
+        if ((whiteToMove ? wm + wk : bm + bk) == 0) return LOSS;
+        EndgameFile file = file(wm, wk, bm, bk);
+        return file == null ? UNKNOWN : file.entry(file.getSlice().index(white, black, kings, whiteToMove));
+    }
+
+    /**
+     * @param pieces board as returned by DraughtsState.getPieces()
+     * @param whiteToMove player to move
+     * @return the entry of the position: see result(int) and distance(int)
+     */
+    int entry(int[] pieces, boolean whiteToMove) {
+        EndgameIndex index = EndgameIndex.of(pieces);
+        if (hasNoPieces(index, whiteToMove)) return LOSS;
+        EndgameFile file = file(index.getWhiteMen(), index.getWhiteKings(),
+                index.getBlackMen(), index.getBlackKings());
+        return file == null ? UNKNOWN : file.entry(index.index(pieces, whiteToMove));
+    }
+
+    /** @return the entry of state s for the player to move; see entry(int[], boolean). */
+    int entry(DraughtsState s) {
+        if (s instanceof BitboardDraughtsState) {
+            BitboardDraughtsState b = (BitboardDraughtsState) s;
+            return entry(b.getWhite(), b.getBlack(), b.getKings(), b.isWhiteToMove());
+        }
+        return countPieces(s) > maxPieces ? UNKNOWN : entry(s.getPieces(), s.isWhiteToMove());
+    }
+
+    /** @return the result in an entry, for the player to move: WIN, LOSS,
+     * DRAW or UNKNOWN. */
+    static int result(int entry) {
+        return entry & 3;
+    }
+
+    /** @return the distance in an entry: the number of plies until the end
+     * of the game with best play, at most MAX_DISTANCE, for a won or lost
+     * position; 0 for a draw. */
+    static int distance(int entry) {
+        return entry >>> 2;
+    }
+
+    /**
+     * chooses the move that wins fastest, draws, or loses slowest.
+     * @param s state
+     * @return the best move in s, or null if the database does not know
+     *         the result and distance of all its moves.
+     */
+    Move bestMove(DraughtsState s) {
+        if (countPieces(s) > maxPieces || s.isEndState()) return null;
+        Move best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (Move m : s.getMoves()) {
+            int entry = entry(after(s.getPieces(), m), !s.isWhiteToMove());
+            int result = result(entry), distance = distance(entry);
+            if (result == UNKNOWN) return null;
+            // a lost position for the opponent is best, the nearest first
+            int score = result == LOSS ? 2 * MAX_DISTANCE - distance
+                      : result == DRAW ? 0
+                      : distance - 2 * MAX_DISTANCE;
+            if (score > bestScore) {
+                bestScore = score;
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    /** @return a copy of board pieces after move m. */
+    static int[] after(int[] pieces, Move m) {
+        int[] child = pieces.clone();
+        child[m.getBeginField()] = DraughtsState.EMPTY;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            child[m.getCapturedField(i)] = DraughtsState.EMPTY;
+        }
+        child[m.getEndField()] = m.getEndPiece();
+        return child;
+    }
+
+    private static boolean hasNoPieces(EndgameIndex index, boolean white) {
+        return white ? index.getWhiteMen() + index.getWhiteKings() == 0
+                     : index.getBlackMen() + index.getBlackKings() == 0;
+    }
+
+    /** @return fraction of the probes that found their block in the cache. */
+    double cacheHitRate() {
+        return cache.hitRate();
+    }
+
+    /** @return the file of the slice with the given material, or null if
+     * it has too many pieces or is not in the directory. */
+    private EndgameFile file(int wm, int wk, int bm, int bk) {
+        if (wm + wk + bm + bk > maxPieces) return null;
+        int i = ((wm * MAX_COUNT + wk) * MAX_COUNT + bm) * MAX_COUNT + bk;
+        Optional<EndgameFile> file = files.get(i);
+        if (file == null) {
+            // opened at most once: a thread that loses the race uses the winner's file
+            files.compareAndSet(i, null, open(new EndgameIndex(wm, wk, bm, bk)));
+            file = files.get(i);
+        }
+        return file.orElse(null);
+    }
+
+    private Optional<EndgameFile> open(EndgameIndex index) {
+        Path file = directory.resolve(prefix + index.getName() + EXTENSION);
+        try {
+            return Files.exists(file)
+                    ? Optional.of(EndgameFile.open(file, cache)) : Optional.empty();
+        } catch (IOException ex) {
+            System.err.println("endgame database: " + ex);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package nl.tue.s2id90.group93;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One slice of the endgame database on disk, in blocks that are compressed
+ * separately, so that a probe only decompresses the block of its position.
+ * The file is:
+ * <ul>
+ * <li>a header: MAGIC, VERSION, the number of white men, white kings, black
+ *     men and black kings of the slice (see EndgameIndex), and the number of
+ *     positions per block;</li>
+ * <li>the index: for every block the offset of its data after the index,
+ *     and the offset of the end of the data;</li>
+ * <li>per block the deflated results of its positions, four per byte, and
+ *     then their distances, one byte per position.</li>
+ * </ul>
+ * The file is mapped into memory, so it is not read into the heap, and the
+ * decompressed blocks are kept in a BlockCache. Only absolute gets and
+ * duplicates of the mapped buffer are used, so a file can be probed by
+ * several threads.
+ * @see EndgameDatabase
+ */
+final class EndgameFile {
+    static final int MAGIC = 0x54494547;   // "TIEG"
+    static final int VERSION = 1;
+
+    /** positions per block: 256 bytes of results and 1 KB of distances;
+     * larger blocks compress a little better, but take longer to inflate. */
+    static final int BLOCK_POSITIONS = 1024;
+
+    /** numbers the open files, for the keys of the blocks in the cache. */
+    private static final AtomicInteger FILES = new AtomicInteger();
+
+    /** number of recently used blocks a file keeps itself, see block(). */
+    private static final int RECENT = 64;
+
+    /** an inflater per thread; creating one per block is slow. */
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private final EndgameIndex slice;
+    private final MappedByteBuffer buffer;
+    private final int blockPositions, blocks, data, id;
+    private final BlockCache cache;
+
+    /** recent[b % RECENT] is block b, if it was used recently; a Block is
+     * immutable, so threads can replace them without locking. */
+    private final Block[] recent = new Block[RECENT];
+
+    private EndgameFile(EndgameIndex slice, MappedByteBuffer buffer,
+            int blockPositions, int data, BlockCache cache) {
+        this.slice = slice;
+        this.buffer = buffer;
+        this.blockPositions = blockPositions;
+        this.blocks = (int) ((slice.size() + blockPositions - 1) / blockPositions);
+        this.data = data;
+        this.id = FILES.incrementAndGet();
+        this.cache = cache;
+    }
+
+    /**
+     * maps a file written by write().
+     * @param file  the file
+     * @param cache cache for the decompressed blocks
+     * @return the opened file
+     * @throws IOException if the file can not be read or is no endgame file
+     */
+    static EndgameFile open(Path file, BlockCache cache) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < 16 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not an endgame file: " + file);
+        }
+        EndgameIndex slice = new EndgameIndex(buffer.get(8), buffer.get(9),
+                buffer.get(10), buffer.get(11));
+        int blockPositions = buffer.getInt(12);
+        long blocks = (slice.size() + blockPositions - 1) / blockPositions;
+        return new EndgameFile(slice, buffer, blockPositions, (int) (16 + 4 * (blocks + 1)), cache);
+    }
+
+    /**
+     * writes a slice.
+     * @param file      the file
+     * @param slice     the slice
+     * @param results   per index of slice: WIN, LOSS, DRAW or UNKNOWN
+     * @param distances per index of slice: the distance of a win or loss
+     * @throws IOException if the file can not be written
+     */
+    static void write(Path file, EndgameIndex slice, byte[] results, byte[] distances)
+            throws IOException {
+        int n = results.length;
+        int blocks = (n + BLOCK_POSITIONS - 1) / BLOCK_POSITIONS;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        int[] offsets = new int[blocks + 1];
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] block = new byte[BLOCK_POSITIONS / 4 + BLOCK_POSITIONS];
+        byte[] buffer = new byte[block.length + 64];
+        for (int b = 0; b < blocks; b++) {
+            Arrays.fill(block, (byte) 0);
+            int start = b * BLOCK_POSITIONS;
+            for (int i = start; i < Math.min(n, start + BLOCK_POSITIONS); i++) {
+                int k = i - start;
+                block[k >>> 2] |= results[i] << 2 * (k & 3);
+                block[BLOCK_POSITIONS / 4 + k] = distances[i];
+            }
+            deflater.reset();
+            deflater.setInput(block);
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            offsets[b + 1] = compressed.size();
+        }
+        deflater.end();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(slice.getWhiteMen());
+            out.writeByte(slice.getWhiteKings());
+            out.writeByte(slice.getBlackMen());
+            out.writeByte(slice.getBlackKings());
+            out.writeInt(BLOCK_POSITIONS);
+            for (int offset : offsets) out.writeInt(offset);
+            compressed.writeTo(out);
+        }
+    }
+
+    /** @return the slice of this file. */
+    EndgameIndex getSlice() {
+        return slice;
+    }
+
+    /**
+     * @param i index of a position
+     * @return its result, see EndgameDatabase, in the lowest two bits, and
+     *         its distance above them
+     */
+    int entry(long i) {
+        int k = (int) (i % blockPositions);
+        byte[] block = block(i);
+        return (block[k >>> 2] >>> 2 * (k & 3) & 3) | (block[blockPositions / 4 + k] & 0xff) << 2;
+    }
+
+    /** @return the decompressed block of index i: one that this file used
+     * recently without allocating, or else from the shared cache. */
+    private byte[] block(long i) {
+        int b = (int) (i / blockPositions);
+        if (b < 0 || b >= blocks) throw new IndexOutOfBoundsException("index " + i);
+        Block r = recent[b % RECENT];
+        if (r != null && r.index == b) return r.data;
+        byte[] data = cache.get((long) id << 32 | b, () -> inflate(b));
+        recent[b % RECENT] = new Block(b, data);
+        return data;
+    }
+
+    /** a decompressed block and its number. */
+    private static final class Block {
+        final int index;
+        final byte[] data;
+
+        Block(int index, byte[] data) {
+            this.index = index;
+            this.data = data;
+        }
+    }
+
+    private byte[] inflate(int b) {
+        int start = buffer.getInt(16 + 4 * b), end = buffer.getInt(16 + 4 * (b + 1));
+        ByteBuffer in = buffer.duplicate();
+        in.position(data + start).limit(data + end);
+        byte[] block = new byte[blockPositions / 4 + blockPositions];
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(in);
+        try {
+            int n = 0;
+            while (n < block.length && !inflater.finished()) {
+                n += inflater.inflate(block, n, block.length - n);
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("corrupt endgame file of slice " + slice, ex);
+        }
+        return block;
+    }
+}
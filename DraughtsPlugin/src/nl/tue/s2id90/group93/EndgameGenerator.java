@@ -0,0 +1,303 @@
+package nl.tue.s2id90.group93;
+
+import static nl.tue.s2id90.group93.EndgameDatabase.DRAW;
+import static nl.tue.s2id90.group93.EndgameDatabase.LOSS;
+import static nl.tue.s2id90.group93.EndgameDatabase.MAX_DISTANCE;
+import static nl.tue.s2id90.group93.EndgameDatabase.UNKNOWN;
+import static nl.tue.s2id90.group93.EndgameDatabase.WIN;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import nl.tue.s2id90.draughts.BitboardDraughtsState;
+import nl.tue.s2id90.draughts.BoardGeometry;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+
+/**
+ * Generates the endgame database by retrograde analysis, one slice (see
+ * EndgameIndex) at a time. Slices with fewer pieces, and with fewer men, are
+ * generated first, so the positions after a capture or a promotion (exits)
+ * are already in the database. For every position of a slice the moves are
+ * generated once: a position that is won by an exit is a win, and the moves
+ * that stay in the slice are counted. Then the decided positions are taken
+ * in order of distance, and their predecessors are found by taking back a
+ * move that does not capture or promote: a predecessor of a lost position is
+ * won, and a predecessor of which all moves in the slice lead to won
+ * positions is lost, unless an exit draws. Whatever is left is a draw.
+ *
+ * <p>Usage: <code>EndgameGenerator [options]</code>, with options
+ * <ul>
+ * <li><code>-pieces N</code>: largest number of pieces, default 4; five
+ *     pieces need several GB of heap;</li>
+ * <li><code>-international</code>: international rules instead of killer rules;</li>
+ * <li><code>-dir DIR</code>: directory of the database, default endgames.</li>
+ * </ul>
+ * TI_v2 uses the database with <code>-Dti.endgames=DIR</code>.
+ * @see EndgameDatabase
+ */
+public class EndgameGenerator {
+    private final Path directory;
+    private final boolean killerRules;
+
+    /** the slices generated so far, to look up the exits. */
+    private EndgameDatabase database;
+
+    /**
+     * @param directory   directory of the database
+     * @param killerRules whether killer rules or international rules are used
+     */
+    EndgameGenerator(Path directory, boolean killerRules) {
+        this.directory = directory;
+        this.killerRules = killerRules;
+    }
+
+    /** @return all slices with 2..maxPieces pieces and pieces of both
+     * colours, in the order in which they are generated. */
+    static List<EndgameIndex> slices(int maxPieces) {
+        List<EndgameIndex> slices = new ArrayList<>();
+        for (int wm = 0; wm <= maxPieces; wm++) {
+            for (int wk = 0; wm + wk <= maxPieces; wk++) {
+                for (int bm = 0; wm + wk + bm <= maxPieces; bm++) {
+                    for (int bk = 0; wm + wk + bm + bk <= maxPieces; bk++) {
+                        if (wm + wk > 0 && bm + bk > 0) {
+                            slices.add(new EndgameIndex(wm, wk, bm, bk));
+                        }
+                    }
+                }
+            }
+        }
+        // fewer pieces first, then fewer men: a promotion replaces a man by a king
+        slices.sort(Comparator.comparingInt(EndgameIndex::getPieces)
+                .thenComparingInt(s -> s.getWhiteMen() + s.getBlackMen()));
+        return slices;
+    }
+
+    /**
+     * generates and writes the given slices in order.
+     * @throws IOException if a file can not be written
+     */
+    void generate(List<EndgameIndex> slices) throws IOException {
+        Files.createDirectories(directory);
+        for (EndgameIndex slice : slices) {
+            long start = System.nanoTime();
+            // reopened, so that it sees the slices written so far
+            database = new EndgameDatabase(directory, killerRules);
+            int[] counts = generate(slice);
+            System.out.format("%s %s: %d positions, %d wins, %d losses, %d draws, longest %d plies, %.1f s\n",
+                    EndgameDatabase.rulesName(killerRules), slice, slice.size(),
+                    counts[WIN], counts[LOSS], counts[DRAW], counts[UNKNOWN],
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /**
+     * generates one slice and writes its files.
+     * @return the number of wins, losses and draws, by result, and the
+     *         longest distance at UNKNOWN
+     */
+    private int[] generate(EndgameIndex slice) throws IOException {
+        if (slice.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("slice " + slice + " is too large");
+        }
+        int n = (int) slice.size();
+        byte[] result = new byte[n];
+        byte[] distance = new byte[n];
+        // number of moves to a position in the slice that are not decided yet
+        byte[] quiet = new byte[n];
+        // longest loss by an exit plus one, or EXIT_DRAW if an exit draws
+        byte[] exit = new byte[n];
+        BitSet done = new BitSet(n);
+        Buckets buckets = new Buckets();
+
+        int[] pieces = new int[51];
+        BoardState bs = new BoardState(10, 10);
+        for (int i = 0; i < n; i++) {
+            boolean white = slice.position(i, pieces);
+            if (!EndgameIndex.isValid(pieces)) {
+                done.set(i);
+                continue;
+            }
+            bs.setPieces(pieces);
+            bs.setWhiteToMove(white);
+            DraughtsState s = new BitboardDraughtsState(bs, killerRules);
+            int win = Integer.MAX_VALUE, loss = 0, count = 0;
+            boolean draw = false;
+            for (Move m : s.getMoves()) {
+                if (!m.isCapture() && !m.isPromotion()) {
+                    count++;
+                    continue;
+                }
+                int[] child = EndgameDatabase.after(pieces, m);
+                int entry = database.entry(child, !white);
+                int r = EndgameDatabase.result(entry), d = EndgameDatabase.distance(entry);
+                if (r == UNKNOWN) {
+                    throw new IllegalStateException("missing slice " + EndgameIndex.of(child));
+                }
+                if (r == LOSS) win = Math.min(win, d + 1);
+                else if (r == WIN) loss = Math.max(loss, d + 1);
+                else draw = true;
+            }
+            quiet[i] = (byte) count;
+            exit[i] = draw ? EXIT_DRAW : (byte) Math.min(loss, MAX_DISTANCE);
+            if (win != Integer.MAX_VALUE) {
+                decide(i, WIN, win, result, distance, buckets);
+            } else if (count == 0) {
+                if (draw) {
+                    result[i] = DRAW;
+                    done.set(i);
+                } else {
+                    decide(i, LOSS, loss, result, distance, buckets);
+                }
+            }
+        }
+
+        // retrograde analysis, in order of distance
+        int longest = 0;
+        // a king has at most 17 moves, a man 2
+        int[] predecessors = new int[MAX_KING_MOVES * slice.getPieces()];
+        for (int d = 0; d <= MAX_DISTANCE; d++) {
+            for (int k = 0; k < buckets.size(d); k++) {
+                int i = buckets.get(d, k);
+                if (done.get(i) || (distance[i] & 0xff) != d) continue;   // decided earlier
+                done.set(i);
+                longest = d;
+                boolean white = slice.position(i, pieces);
+                int count = predecessors(slice, pieces, white, predecessors);
+                for (int p = 0; p < count; p++) {
+                    int q = predecessors[p];
+                    if (done.get(q) || quiet[q] == 0) continue;
+                    if (result[i] == LOSS) {
+                        if (result[q] != WIN || (distance[q] & 0xff) > d + 1) {
+                            decide(q, WIN, d + 1, result, distance, buckets);
+                        }
+                    } else if (result[q] != WIN && --quiet[q] == 0) {
+                        if (exit[q] == EXIT_DRAW) {
+                            result[q] = DRAW;
+                            done.set(q);
+                        } else {
+                            decide(q, LOSS, Math.max(d + 1, exit[q] & 0xff), result, distance, buckets);
+                        }
+                    }
+                }
+            }
+            buckets.clear(d);
+        }
+
+        // what is left is a draw; invalid placements are done, but unknown
+        int[] counts = new int[4];
+        counts[UNKNOWN] = longest;
+        for (int i = 0; i < n; i++) {
+            if (result[i] == UNKNOWN && !done.get(i)) result[i] = DRAW;
+            if (result[i] == DRAW) distance[i] = 0;
+            if (result[i] != UNKNOWN) counts[result[i]]++;
+        }
+        EndgameFile.write(directory.resolve(EndgameDatabase.fileName(killerRules, slice)),
+                slice, result, distance);
+        return counts;
+    }
+
+    /** largest number of moves of a king, on the long diagonal of an empty board. */
+    private static final int MAX_KING_MOVES = 17;
+
+    /** marks exit as drawn. */
+    private static final byte EXIT_DRAW = (byte) 0xff;
+
+    /** gives position i a (new) result, decided when its distance is reached. */
+    private static void decide(int i, int r, int d, byte[] result, byte[] distance, Buckets buckets) {
+        d = Math.min(d, MAX_DISTANCE);
+        result[i] = (byte) r;
+        distance[i] = (byte) d;
+        buckets.add(d, i);
+    }
+
+    /**
+     * finds the positions from which a move that does not capture or promote
+     * leads to the given position, by taking back a move of the player that
+     * is not to move.
+     * @param pieces board of the position; unchanged afterwards
+     * @param whiteToMove player to move in the position
+     * @param target array in which the indices of the predecessors are put
+     * @return number of predecessors
+     */
+    private static int predecessors(EndgameIndex slice, int[] pieces, boolean whiteToMove, int[] target) {
+        int count = 0;
+        int man = whiteToMove ? DraughtsState.BLACKPIECE : DraughtsState.WHITEPIECE;
+        int king = whiteToMove ? DraughtsState.BLACKKING : DraughtsState.WHITEKING;
+        for (int f = 1; f <= 50; f++) {
+            int p = pieces[f];
+            if (p == king) {
+                pieces[f] = DraughtsState.EMPTY;
+                for (int d = 0; d < 4; d++) {
+                    for (int g : BoardGeometry.ray(f, d)) {
+                        if (pieces[g] != DraughtsState.EMPTY) break;
+                        pieces[g] = king;
+                        target[count++] = (int) slice.index(pieces, !whiteToMove);
+                        pieces[g] = DraughtsState.EMPTY;
+                    }
+                }
+                pieces[f] = king;
+            } else if (p == man) {
+                // white men move up, so they came from below
+                int[] from = man == DraughtsState.WHITEPIECE
+                        ? new int[] {BoardGeometry.DOWN_LEFT, BoardGeometry.DOWN_RIGHT}
+                        : new int[] {BoardGeometry.UP_LEFT, BoardGeometry.UP_RIGHT};
+                for (int d : from) {
+                    int g = BoardGeometry.neighbour(f, d);
+                    if (g == 0 || pieces[g] != DraughtsState.EMPTY) continue;
+                    pieces[f] = DraughtsState.EMPTY;
+                    pieces[g] = man;
+                    target[count++] = (int) slice.index(pieces, !whiteToMove);
+                    pieces[g] = DraughtsState.EMPTY;
+                    pieces[f] = man;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** lists of positions per distance. */
+    private static final class Buckets {
+        private final int[][] items = new int[MAX_DISTANCE + 1][];
+        private final int[] sizes = new int[MAX_DISTANCE + 1];
+
+        void add(int d, int i) {
+            if (items[d] == null) items[d] = new int[1024];
+            if (sizes[d] == items[d].length) items[d] = Arrays.copyOf(items[d], 2 * sizes[d]);
+            items[d][sizes[d]++] = i;
+        }
+
+        int size(int d)       { return sizes[d]; }
+        int get(int d, int k) { return items[d][k]; }
+
+        void clear(int d) {
+            items[d] = null;
+            sizes[d] = 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int pieces = 4;
+        boolean killerRules = true;
+        Path dir = Paths.get("endgames");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-pieces":        pieces = Integer.parseInt(args[++i]); break;
+                case "-international": killerRules = false; break;
+                case "-dir":           dir = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("usage: EndgameGenerator [-pieces N] [-international] [-dir DIR]");
+                    System.exit(1);
+            }
+        }
+        long start = System.nanoTime();
+        new EndgameGenerator(dir, killerRules).generate(slices(pieces));
+        System.out.format("done in %.1f s\n", (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,214 @@
+package nl.tue.s2id90.group93;
+
+import java.util.Arrays;
+import nl.tue.s2id90.draughts.BitboardDraughtsState;
+import nl.tue.s2id90.draughts.DraughtsState;
+
+/**
+ * Perfect index of the positions with a given material: the number of white
+ * men, white kings, black men and black kings (a slice of the endgame
+ * database). The white men are placed on the 50 fields, then the black men
+ * on the fields that are left, then the white kings and the black kings.
+ * Each group is ranked in the combinatorial number system among the fields
+ * that are still free, so every index below size() is one placement, and
+ * the lowest bit of the index is the player to move.
+ *
+ * <p>Placements with a man on the row where it would have been promoted have
+ * an index too; they do not occur in games, and isValid() is false for them.
+ */
+final class EndgameIndex {
+    /** largest number of pieces of a slice. */
+    static final int MAX_PIECES = 8;
+
+    /** BINOMIAL[n][k] = n over k. */
+    private static final long[][] BINOMIAL = new long[51][MAX_PIECES + 1];
+
+    /** piece codes of the groups, in the order in which they are placed. */
+    private static final int[] GROUPS = {
+        DraughtsState.WHITEPIECE, DraughtsState.BLACKPIECE,
+        DraughtsState.WHITEKING, DraughtsState.BLACKKING
+    };
+
+    static {
+        for (int n = 0; n <= 50; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= MAX_PIECES && k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private final int whiteMen, whiteKings, blackMen, blackKings;
+
+    /** count[g]: number of pieces of group g; free[g]: free fields for group g. */
+    private final int[] count = new int[4], free = new int[4];
+
+    /** number of placements of groups g..3. */
+    private final long[] placements = new long[5];
+
+    EndgameIndex(int whiteMen, int whiteKings, int blackMen, int blackKings) {
+        this.whiteMen = whiteMen;
+        this.whiteKings = whiteKings;
+        this.blackMen = blackMen;
+        this.blackKings = blackKings;
+        count[0] = whiteMen;
+        count[1] = blackMen;
+        count[2] = whiteKings;
+        count[3] = blackKings;
+        if (getPieces() > MAX_PIECES) {
+            throw new IllegalArgumentException("more than " + MAX_PIECES + " pieces");
+        }
+        int fields = 50;
+        for (int g = 0; g < 4; g++) {
+            free[g] = fields;
+            fields -= count[g];
+        }
+        placements[4] = 1;
+        for (int g = 3; g >= 0; g--) {
+            placements[g] = placements[g + 1] * BINOMIAL[free[g]][count[g]];
+        }
+    }
+
+    /** @return the index of the material on board pieces. */
+    static EndgameIndex of(int[] pieces) {
+        int[] n = new int[5];
+        for (int f = 1; f <= 50; f++) n[pieces[f]]++;
+        return new EndgameIndex(n[DraughtsState.WHITEPIECE], n[DraughtsState.WHITEKING],
+                n[DraughtsState.BLACKPIECE], n[DraughtsState.BLACKKING]);
+    }
+
+    int getWhiteMen()   { return whiteMen; }
+    int getWhiteKings() { return whiteKings; }
+    int getBlackMen()   { return blackMen; }
+    int getBlackKings() { return blackKings; }
+
+    /** @return total number of pieces. */
+    int getPieces() {
+        return whiteMen + whiteKings + blackMen + blackKings;
+    }
+
+    /** @return number of indices: positions, including invalid placements. */
+    long size() {
+        return 2 * placements[0];
+    }
+
+    /** @return name of the slice, e.g. "1101" for one white man, one white
+     * king, no black man and one black king. */
+    String getName() {
+        return "" + whiteMen + whiteKings + blackMen + blackKings;
+    }
+
+    /**
+     * @param pieces board with the material of this slice
+     * @param whiteToMove player to move
+     * @return the index of the position
+     */
+    long index(int[] pieces, boolean whiteToMove) {
+        long occupied = 0, index = 0;
+        for (int g = 0; g < 4; g++) {
+            long rank = 0;
+            int k = 0;
+            for (int f = 1; f <= 50; f++) {
+                if (pieces[f] == GROUPS[g]) {
+                    // position of f among the fields that are still free
+                    int p = f - 1 - Long.bitCount(occupied & ((1L << f) - 1));
+                    rank += BINOMIAL[p][++k];
+                }
+            }
+            for (int f = 1; f <= 50; f++) {
+                if (pieces[f] == GROUPS[g]) occupied |= 1L << f;
+            }
+            index += rank * placements[g + 1];
+        }
+        return 2 * index + (whiteToMove ? 0 : 1);
+    }
+
+    /**
+     * the same index as index(int[], boolean), of the masks of a
+     * BitboardDraughtsState; it does not allocate, so the search can use it.
+     * @param white       white pieces
+     * @param black       black pieces
+     * @param kings       kings of both colors
+     * @param whiteToMove player to move
+     * @return the index of the position
+     */
+    long index(long white, long black, long kings, boolean whiteToMove) {
+        long occupied = 0, index = 0;
+        for (int g = 0; g < 4; g++) {
+            long group = g == 0 ? white & ~kings : g == 1 ? black & ~kings
+                       : g == 2 ? white & kings : black & kings;
+            long rank = 0;
+            int k = 0;
+            for (long m = group; m != 0; m &= m - 1) {
+                int b = Long.numberOfTrailingZeros(m);
+                // position of the field among the fields that are still free;
+                // ghost bits are never occupied
+                int p = BitboardDraughtsState.field(b) - 1 - Long.bitCount(occupied & ((1L << b) - 1));
+                rank += BINOMIAL[p][++k];
+            }
+            occupied |= group;
+            index += rank * placements[g + 1];
+        }
+        return 2 * index + (whiteToMove ? 0 : 1);
+    }
+
+    /**
+     * puts the position with the given index on a board.
+     * @param index index below size()
+     * @param pieces board, which is overwritten
+     * @return whether or not white is to move
+     */
+    boolean position(long index, int[] pieces) {
+        Arrays.fill(pieces, DraughtsState.EMPTY);
+        boolean whiteToMove = index % 2 == 0;
+        long rest = index / 2;
+        long occupied = 0;
+        for (int g = 0; g < 4; g++) {
+            long rank = rest / placements[g + 1];
+            rest %= placements[g + 1];
+            long group = 0;
+            for (int k = count[g]; k > 0; k--) {
+                // largest p with p over k <= rank
+                int p = k - 1;
+                while (BINOMIAL[p + 1][k] <= rank) p++;
+                rank -= BINOMIAL[p][k];
+                // the p-th free field
+                int f = 0;
+                for (int n = -1; n < p; ) {
+                    f++;
+                    if ((occupied >>> f & 1) == 0) n++;
+                }
+                group |= 1L << f;
+                pieces[f] = GROUPS[g];
+            }
+            occupied |= group;
+        }
+        return whiteToMove;
+    }
+
+    /** @return whether or not no man on board pieces is on its promotion row. */
+    static boolean isValid(int[] pieces) {
+        for (int f = 1; f <= 5; f++) {
+            if (pieces[f] == DraughtsState.WHITEPIECE) return false;
+        }
+        for (int f = 46; f <= 50; f++) {
+            if (pieces[f] == DraughtsState.BLACKPIECE) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EndgameIndex && ((EndgameIndex) o).getName().equals(getName());
+    }
+
+    @Override
+    public int hashCode() {
+        return getName().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
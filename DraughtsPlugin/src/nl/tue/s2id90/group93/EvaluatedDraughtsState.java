@@ -0,0 +1,58 @@
+package nl.tue.s2id90.group93;
+
+import nl.tue.s2id90.draughts.BitboardDraughtsState;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * A BitboardDraughtsState that keeps an IncrementalEvaluation of its
+ * position up to date in doMove and undoMove, so that TI_v2 can evaluate a
+ * leaf without looking at the whole board.
+ */
+class EvaluatedDraughtsState extends BitboardDraughtsState {
+    private IncrementalEvaluation evaluation;
+
+    /** creates a copy of s, evaluated with the standard tables. */
+    EvaluatedDraughtsState(DraughtsState s) {
+        this(s, PatternEvaluation.standard());
+    }
+
+    /** creates a copy of s, evaluated with the given tables. */
+    EvaluatedDraughtsState(DraughtsState s, PatternEvaluation tables) {
+        super(s);
+        evaluation = new IncrementalEvaluation(getPieces(), tables);
+    }
+
+    private EvaluatedDraughtsState(EvaluatedDraughtsState s) {
+        super(s);
+        evaluation = new IncrementalEvaluation(s.evaluation);
+    }
+
+    /** @return the evaluation of the current position. */
+    IncrementalEvaluation getEvaluation() {
+        return evaluation;
+    }
+
+    @Override
+    public void doMove(Move m) {
+        super.doMove(m);
+        evaluation.doMove(m);
+    }
+
+    @Override
+    public void undoMove(Move m) {
+        super.undoMove(m);
+        evaluation.undoMove(m);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        evaluation = new IncrementalEvaluation(getPieces(), evaluation.getTables());
+    }
+
+    @Override
+    public EvaluatedDraughtsState clone() {
+        return new EvaluatedDraughtsState(this);
+    }
+}
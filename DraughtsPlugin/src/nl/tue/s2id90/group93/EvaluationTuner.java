@@ -0,0 +1,274 @@
+package nl.tue.s2id90.group93;
+
+import static nl.tue.s2id90.group93.IncrementalEvaluation.BALANCE_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.CENTER_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.DEFENDER_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.FORMATION_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.MATERIAL_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.TEMPI_WEIGHT;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Fits the weights of the terms of TI_v2.evaluateForWhite to the results of
+ * recorded games (Texel tuning). Every quiet position of a game, i.e. one in
+ * which the player to move can not capture, is a sample with the result of
+ * the game for white: 1, 0.5 or 0. The evaluation predicts that result as
+ * sigmoid(k * value); the tuner changes one weight at a time by one, as long
+ * as that lowers the mean squared error of the predictions over all samples.
+ * k is first fitted to the current weights, so that the scale of the weights
+ * stays the same. The error is computed on several threads.
+ *
+ * <p>The evaluation is linear in the weights, so every sample keeps the
+ * value of each term, computed with a PatternEvaluation that has only the
+ * weight of that term, and the error of other weights needs no evaluation.
+ *
+ * <p>The games are read from the PDN files OfflineTournament writes, or from
+ * its roundrobin.zip. The result is a pattern table file for TI_v2, which
+ * it loads at startup with <code>-Dti.patterns=FILE</code>.
+ *
+ * <p>Usage: <code>EvaluationTuner [options] file...</code>, with options
+ * <ul>
+ * <li><code>-out FILE</code>: table file to write, default ti-patterns.bin;</li>
+ * <li><code>-threads N</code>: number of threads, default all processors;</li>
+ * <li><code>-iterations N</code>: maximum number of passes over the weights, default 100;</li>
+ * <li><code>-skip N</code>: number of opening plies of each game that are not used, default 10.</li>
+ * </ul>
+ * @see PatternEvaluation#load(Path)
+ */
+public class EvaluationTuner {
+    /** names of the terms, in the order of the weights. */
+    static final String[] TERMS = {
+        "material", "center", "tempi", "balance", "defender", "formation"
+    };
+
+    /** values of the terms of the samples: term t of sample i is at
+     * TERMS.length * i + t. */
+    private final int[] terms;
+
+    /** result of the game of each sample, for white. */
+    private final double[] results;
+
+    private final ForkJoinPool pool;
+    private double k;
+
+    /**
+     * @param samples positions with the result of their game
+     * @param threads number of threads that compute the error
+     */
+    EvaluationTuner(List<Sample> samples, int threads) {
+        PatternEvaluation[] unit = new PatternEvaluation[TERMS.length];
+        for (int t = 0; t < TERMS.length; t++) {
+            int[] w = new int[TERMS.length];
+            w[t] = 1;
+            unit[t] = tables(w);
+        }
+        terms = new int[TERMS.length * samples.size()];
+        results = new double[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            for (int t = 0; t < TERMS.length; t++) {
+                terms[TERMS.length * i + t] = unit[t].value(samples.get(i).pieces);
+            }
+            results[i] = samples.get(i).result;
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    /** @return the standard weights of IncrementalEvaluation, in the order of TERMS. */
+    static int[] standardWeights() {
+        return new int[] {MATERIAL_WEIGHT, CENTER_WEIGHT, TEMPI_WEIGHT,
+            BALANCE_WEIGHT, DEFENDER_WEIGHT, FORMATION_WEIGHT};
+    }
+
+    /** @return the tables of the evaluation with weights w. */
+    static PatternEvaluation tables(int[] w) {
+        return PatternEvaluation.withWeights(w[0], w[1], w[2], w[3], w[4], w[5]);
+    }
+
+    /** @return number of samples. */
+    int size() {
+        return results.length;
+    }
+
+    /** @return the scale k of the sigmoid, as fitted by fitScale. */
+    double getScale() {
+        return k;
+    }
+
+    /**
+     * fits the scale k of the sigmoid to the given weights, by a golden
+     * section search of the error over log(k).
+     * @return k
+     */
+    double fitScale(int[] w) {
+        double phi = (Math.sqrt(5) - 1) / 2;
+        double lo = Math.log(1e-5), hi = Math.log(1);
+        double x1 = hi - phi * (hi - lo), x2 = lo + phi * (hi - lo);
+        double e1 = error(w, Math.exp(x1)), e2 = error(w, Math.exp(x2));
+        for (int i = 0; i < 60; i++) {
+            if (e1 < e2) {
+                hi = x2; x2 = x1; e2 = e1;
+                x1 = hi - phi * (hi - lo);
+                e1 = error(w, Math.exp(x1));
+            } else {
+                lo = x1; x1 = x2; e1 = e2;
+                x2 = lo + phi * (hi - lo);
+                e2 = error(w, Math.exp(x2));
+            }
+        }
+        k = Math.exp((lo + hi) / 2);
+        return k;
+    }
+
+    /** @return the mean squared error of weights w with the fitted scale. */
+    double error(int[] w) {
+        return error(w, k);
+    }
+
+    /** @return the mean squared error of weights w with scale k. */
+    private double error(int[] w, double k) {
+        try {
+            return pool.submit(() -> IntStream.range(0, results.length).parallel()
+                    .mapToDouble(i -> {
+                        int value = 0;
+                        for (int t = 0; t < w.length; t++) {
+                            value += w[t] * terms[TERMS.length * i + t];
+                        }
+                        double e = results[i] - 1 / (1 + Math.exp(-k * value));
+                        return e * e;
+                    }).sum()).get() / results.length;
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * changes the weights one step at a time, as long as that lowers the
+     * error; the scale must have been fitted.
+     * @param w weights, which are changed
+     * @param iterations maximum number of passes over the weights
+     * @return the error of the final weights
+     */
+    double tune(int[] w, int iterations) {
+        double best = error(w);
+        for (int pass = 0; pass < iterations; pass++) {
+            boolean improved = false;
+            for (int t = 0; t < w.length; t++) {
+                for (int step : new int[] {1, -1}) {
+                    w[t] += step;
+                    double e = error(w);
+                    if (e < best) {
+                        best = e;
+                        improved = true;
+                        // keep going in the same direction
+                        while (true) {
+                            w[t] += step;
+                            e = error(w);
+                            if (e >= best) { w[t] -= step; break; }
+                            best = e;
+                        }
+                        break;
+                    }
+                    w[t] -= step;
+                }
+            }
+            System.err.format("pass %d: error=%.6f, weights=%s\n",
+                    pass + 1, best, Arrays.toString(w));
+            if (!improved) break;
+        }
+        return best;
+    }
+
+    /** a position and the result of its game for white. */
+    static class Sample {
+        final int[] pieces;
+        final double result;
+
+        Sample(int[] pieces, double result) {
+            this.pieces = pieces;
+            this.result = result;
+        }
+    }
+
+    /**
+     * reads the samples of games in a PDN file or in a zip file with PDN
+     * files.
+     * @param file the file
+     * @param skip number of opening plies that are not used
+     * @param samples list to which the samples are added
+     * @throws IOException if the file can not be read
+     * @see PdnGames
+     */
+    static void read(Path file, int skip, List<Sample> samples) throws IOException {
+        PdnGames.read(file, (moves, result) -> addGame(moves, result, skip, samples));
+    }
+
+    /** replays a game and adds its quiet positions, after skip plies. */
+    private static void addGame(List<String> moves, double result, int skip, List<Sample> samples) {
+        if (result < 0) return;
+        DraughtsState s = new DraughtsState();
+        for (int ply = 0; ply < moves.size() && !s.isEndState(); ply++) {
+            List<Move> legal = s.getMoves();
+            if (ply >= skip && !legal.get(0).isCapture()) {
+                samples.add(new Sample(s.getPieces().clone(), result));
+            }
+            Move move = PdnGames.find(legal, moves.get(ply));
+            if (move == null) {
+                if (!moves.get(ply).equals("null")) {
+                    System.err.println("illegal move " + moves.get(ply) + ", rest of game skipped");
+                }
+                return;
+            }
+            s.doMove(move);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path out = Paths.get("ti-patterns.bin");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int iterations = 100, skip = 10;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-out":        out = Paths.get(args[++i]); break;
+                case "-threads":    threads = Integer.parseInt(args[++i]); break;
+                case "-iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "-skip":       skip = Integer.parseInt(args[++i]); break;
+                default:            files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: EvaluationTuner [-out FILE] [-threads N] [-iterations N] [-skip N] file...");
+            System.exit(1);
+        }
+
+        List<Sample> samples = new ArrayList<>();
+        for (Path file : files) read(file, skip, samples);
+        EvaluationTuner tuner = new EvaluationTuner(samples, threads);
+        int[] w = standardWeights();
+        double k = tuner.fitScale(w);
+        double before = tuner.error(w);
+        System.err.format("%d positions, k=%.6f, error=%.6f, weights=%s\n",
+                tuner.size(), k, before, Arrays.toString(w));
+
+        long start = System.nanoTime();
+        double after = tuner.tune(w, iterations);
+        System.out.format("error %.6f -> %.6f in %.1f s\n",
+                before, after, (System.nanoTime() - start) / 1e9);
+        for (int t = 0; t < TERMS.length; t++) {
+            System.out.format("%-10s %4d\n", TERMS[t], w[t]);
+        }
+        tables(w).save(out);
+        System.out.println("tables written to " + out);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,123 @@
+package nl.tue.s2id90.group93;
+
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Running totals of the TI_v2 evaluation, which PatternEvaluation computes
+ * with one table lookup per board region. Instead of evaluating all 50
+ * fields at every leaf, the indices of the regions that contain a field, and
+ * the sum of their values, are updated when the field changes in doMove or
+ * undoMove: the begin field, the end field and the captured fields. A field
+ * is in one row and in at most five patches.
+ *
+ * <p>value() is equal to PatternEvaluation.value for the same board, so with
+ * the standard tables to TI_v2.evaluateForWhite.
+ */
+class IncrementalEvaluation {
+    //<editor-fold defaultstate="collapsed" desc="weights">
+    static final int MATERIAL_WEIGHT = 10;
+    static final int CENTER_WEIGHT = 7;
+    static final int TEMPI_WEIGHT = 4;
+    static final int BALANCE_WEIGHT = 4;
+    static final int DEFENDER_WEIGHT = 5;
+    static final int FORMATION_WEIGHT = 6;
+    //</editor-fold>
+
+    private final PatternEvaluation tables;
+
+    /** piece codes of the fields. */
+    private final int[] pieces = new int[51];
+
+    /** index of every row, and of every patch by the field in its middle. */
+    private final int[] rowIndex = new int[10], patchIndex = new int[51];
+    private int whiteBalance, blackBalance;
+
+    /** sum of the values of the rows and the patches. */
+    private int sum;
+
+    /**
+     * @param pieces board as returned by DraughtsState.getPieces()
+     * @param tables the tables of the evaluation
+     */
+    IncrementalEvaluation(int[] pieces, PatternEvaluation tables) {
+        this.tables = tables;
+        System.arraycopy(pieces, 0, this.pieces, 0, this.pieces.length);
+        for (int r = 0; r < 10; r++) {
+            rowIndex[r] = PatternEvaluation.rowIndex(pieces, r);
+            sum += tables.rows[r][rowIndex[r]];
+            whiteBalance += PatternEvaluation.WHITE_SIDE[r][rowIndex[r]];
+            blackBalance += PatternEvaluation.BLACK_SIDE[r][rowIndex[r]];
+        }
+        for (int m : PatternEvaluation.MIDDLES) {
+            patchIndex[m] = PatternEvaluation.patchIndex(pieces, m);
+            sum += tables.patches[patchIndex[m]];
+        }
+    }
+
+    /** creates a copy of e. */
+    IncrementalEvaluation(IncrementalEvaluation e) {
+        tables = e.tables;
+        System.arraycopy(e.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(e.rowIndex, 0, rowIndex, 0, rowIndex.length);
+        System.arraycopy(e.patchIndex, 0, patchIndex, 0, patchIndex.length);
+        whiteBalance = e.whiteBalance;
+        blackBalance = e.blackBalance;
+        sum = e.sum;
+    }
+
+    /** @return the tables of this evaluation. */
+    PatternEvaluation getTables() {
+        return tables;
+    }
+
+    /** @return the evaluation of the current position, white is maximizing. */
+    int value() {
+        return sum + tables.balanceValue(whiteBalance, blackBalance);
+    }
+
+    /** updates the totals for move m, which has just been done. */
+    void doMove(Move m) {
+        set(m.getBeginField(), DraughtsState.EMPTY);
+        set(m.getEndField(), m.getEndPiece());
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            set(m.getCapturedField(i), DraughtsState.EMPTY);
+        }
+    }
+
+    /** updates the totals for move m, which has just been undone. */
+    void undoMove(Move m) {
+        set(m.getEndField(), DraughtsState.EMPTY);
+        set(m.getBeginField(), m.getBeginPiece());
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            set(m.getCapturedField(i), m.getCapturedPiece(i));
+        }
+    }
+
+    /** puts piece code c on field f and updates the regions around f. */
+    private void set(int f, int c) {
+        int d = c - pieces[f];
+        if (d == 0) return;
+        pieces[f] = c;
+
+        int r = (f - 1) / PatternEvaluation.REGION_FIELDS;
+        int i = rowIndex[r];
+        sum -= tables.rows[r][i];
+        whiteBalance -= PatternEvaluation.WHITE_SIDE[r][i];
+        blackBalance -= PatternEvaluation.BLACK_SIDE[r][i];
+        i += d * PatternEvaluation.ROW_POWER[f];
+        rowIndex[r] = i;
+        sum += tables.rows[r][i];
+        whiteBalance += PatternEvaluation.WHITE_SIDE[r][i];
+        blackBalance += PatternEvaluation.BLACK_SIDE[r][i];
+
+        int[] middles = PatternEvaluation.PATCHES[f];
+        int[] powers = PatternEvaluation.PATCH_POWER[f];
+        for (int k = 0; k < middles.length; k++) {
+            int m = middles[k];
+            sum -= tables.patches[patchIndex[m]];
+            patchIndex[m] += d * powers[k];
+            sum += tables.patches[patchIndex[m]];
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package nl.tue.s2id90.group93;
+
+import java.util.Arrays;
+import java.util.List;
+import org10x10.dam.game.Move;
+
+/**
+ * Orders the moves of a node so that the move that is most likely to cause a
+ * cutoff is searched first: the hash move (from the transposition table or the
+ * previous iteration), then the two killer moves of the ply, then the other
+ * moves by their history score. Moves are identified by
+ * TranspositionTable.packMove, so a killer also matches the same move of a
+ * sibling position.
+ *
+ * <p>Each search thread needs its own MoveOrdering.
+ */
+class MoveOrdering {
+    /** killer slots per ply. */
+    static final int KILLERS = 2;
+
+    /** history scores are halved when one of them passes this value. */
+    static final int MAX_HISTORY = 1 << 24;
+
+    private static final int HASH_SCORE = Integer.MAX_VALUE;
+    private static final int KILLER_SCORE = HASH_SCORE - KILLERS;
+
+    /** killers[ply][k], packed moves; 0 is an empty slot. */
+    private long[][] killers = new long[64][KILLERS];
+
+    /** butterfly table: history[begin field][end field]. */
+    private final int[][] history = new int[51][51];
+
+    /** scores of the moves being sorted; grows when needed. */
+    private int[] scores = new int[64];
+
+    /** forgets the killers, and ages the history for a new search. */
+    void newSearch() {
+        for (long[] k : killers) Arrays.fill(k, 0L);
+        ageHistory();
+    }
+
+    /**
+     * sorts moves in place, best candidate first.
+     * @param moves    moves of the node
+     * @param hashMove best move of an earlier search of the node, may be null
+     * @param ply      distance of the node to the root
+     */
+    void order(List<Move> moves, Move hashMove, int ply) {
+        int n = moves.size();
+        if (n < 2) return;
+        if (scores.length < n) scores = new int[2 * n];
+        long hash = TranspositionTable.packMove(hashMove);
+        long[] k = killers(ply);
+        for (int i = 0; i < n; i++) {
+            Move m = moves.get(i);
+            long packed = TranspositionTable.packMove(m);
+            scores[i] = packed == hash ? HASH_SCORE
+                      : packed == k[0] ? KILLER_SCORE
+                      : packed == k[1] ? KILLER_SCORE - 1
+                      : history[m.getBeginField()][m.getEndField()];
+        }
+        // insertion sort: the lists are short, and it is stable
+        for (int i = 1; i < n; i++) {
+            int score = scores[i];
+            Move m = moves.get(i);
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                scores[j + 1] = scores[j];
+                moves.set(j + 1, moves.get(j));
+                j--;
+            }
+            scores[j + 1] = score;
+            moves.set(j + 1, m);
+        }
+    }
+
+    /**
+     * records that move caused a beta cutoff.
+     * @param move  the move
+     * @param ply   distance of the node to the root
+     * @param depth remaining depth of the node
+     */
+    void cutoff(Move move, int ply, int depth) {
+        long packed = TranspositionTable.packMove(move);
+        long[] k = killers(ply);
+        if (k[0] != packed) {
+            k[1] = k[0];
+            k[0] = packed;
+        }
+        int h = history[move.getBeginField()][move.getEndField()] += depth * depth;
+        if (h > MAX_HISTORY) ageHistory();
+    }
+
+    private long[] killers(int ply) {
+        if (ply >= killers.length) {
+            int old = killers.length;
+            killers = Arrays.copyOf(killers, 2 * ply);
+            for (int i = old; i < killers.length; i++) killers[i] = new long[KILLERS];
+        }
+        return killers[ply];
+    }
+
+    private void ageHistory() {
+        for (int[] row : history) {
+            for (int i = 0; i < row.length; i++) row[i] >>= 1;
+        }
+    }
+}
@@ -15,6 +15,18 @@ import nl.tue.s2id90.draughts.DraughtsPlugin;
  */
 @PluginImplementation
 public class MyDraughtsPlugin extends DraughtsPlayerProvider implements DraughtsPlugin {
+    /** system property with the number of threads of TI_v2's search. */
+    static final String THREADS_PROPERTY = "ti.threads";
+    
+    /**
+     * @param threads number of threads the host gives a player of one game
+     * @return number of threads TI_v2 uses for its (lazy SMP) search: set
+     * with -Dti.threads=n, or else the given number.
+     */
+    static int searchThreads(int threads) {
+        return Math.max(1, Integer.getInteger(THREADS_PROPERTY, threads));
+    }
+    
     public MyDraughtsPlugin() {
         // make one or more players available to the AICompetition tool
         // During the final competition you should make only your 
@@ -24,7 +36,9 @@ public class MyDraughtsPlugin extends DraughtsPlayerProvider implements Draughts
                 //new UninformedPlayer(), //removed since only one player wanted
                 //new OptimisticPlayer(),
                 //new BuggyPlayer()
-                new TI_v2(8)
+                // a new player for every game, so games can be played at the
+                // same time; the games share the cores
+                threads -> new TI_v2(8, searchThreads(threads))
         );
     }
 }
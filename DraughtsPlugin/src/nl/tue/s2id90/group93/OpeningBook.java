@@ -0,0 +1,201 @@
+package nl.tue.s2id90.group93;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Moves played in recorded games, per position, as written by
+ * OpeningBookBuilder. The file is:
+ * <ul>
+ * <li>a header: MAGIC, VERSION, whether the games were played with killer
+ *     rules, the Zobrist key of the start position (so that a book of other
+ *     keys is not used), and the number of entries;</li>
+ * <li>the entries, sorted by the key of their position: the key, the begin
+ *     and end field of the move, the number of games in which it was played,
+ *     and the points the player who played it got in those games, two for a
+ *     win and one for a draw.</li>
+ * </ul>
+ * The book is read into sorted arrays, so a lookup is a binary search of the
+ * Zobrist key of the position.
+ * @see OpeningBookBuilder
+ */
+final class OpeningBook {
+    static final int MAGIC = 0x54494f42;   // "TIOB"
+    static final int VERSION = 1;
+
+    /** system property with the book file TI_v2 uses. */
+    static final String FILE_PROPERTY = "ti.book";
+
+    private static OpeningBook loaded;
+    private static boolean tried;
+
+    private final boolean killerRules;
+    private final long[] keys;
+    /** per entry: begin field, end field, games and points. */
+    private final int[] begins, ends, games, points;
+
+    /**
+     * @param killerRules whether the games were played with killer rules
+     * @param keys        Zobrist keys of the positions, sorted
+     * @param begins      begin fields of the moves
+     * @param ends        end fields of the moves
+     * @param games       number of games in which a move was played
+     * @param points      points of the player of a move in those games
+     */
+    OpeningBook(boolean killerRules, long[] keys, int[] begins, int[] ends,
+            int[] games, int[] points) {
+        this.killerRules = killerRules;
+        this.keys = keys;
+        this.begins = begins;
+        this.ends = ends;
+        this.games = games;
+        this.points = points;
+    }
+
+    /** @return the book in the file named by system property ti.book, or
+     * null if it is not set or can not be read. */
+    static synchronized OpeningBook getDefault() {
+        if (!tried) {
+            tried = true;
+            String file = System.getProperty(FILE_PROPERTY);
+            if (file != null) {
+                try {
+                    loaded = load(Paths.get(file));
+                } catch (IOException ex) {
+                    System.err.println("no opening book: " + ex);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /** @return number of moves in the book. */
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * chooses a book move in s. A move is chosen with a probability that is
+     * proportional to the number of games in which it was played, times the
+     * square of its score (its points per game, with one extra draw), so
+     * that popular moves are played most, and moves that did badly hardly
+     * ever.
+     * @param s      state
+     * @param random source of the choice
+     * @return a move of s, or null if s is not in the book
+     */
+    Move choose(DraughtsState s, Random random) {
+        if (s.isUsingKillerRules() != killerRules) return null;
+        int first = first(s.getHashKey());
+        if (first < 0) return null;
+        List<Move> legal = s.getMoves();
+        Move[] moves = new Move[legal.size()];
+        double[] weights = new double[legal.size()];
+        double total = 0;
+        int n = 0;
+        for (int i = first; i < keys.length && keys[i] == keys[first]; i++) {
+            Move m = find(legal, begins[i], ends[i]);
+            if (m == null) return null;   // another position with the same key
+            double score = (points[i] + 1.0) / (2.0 * games[i] + 2);
+            moves[n] = m;
+            weights[n] = games[i] * score * score;
+            total += weights[n++];
+        }
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < n - 1; i++) {
+            r -= weights[i];
+            if (r < 0) return moves[i];
+        }
+        return moves[n - 1];
+    }
+
+    /** @return index of the first entry with the given key, or -1. */
+    private int first(long key) {
+        int lo = 0, hi = keys.length - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) {
+                lo = mid + 1;
+            } else {
+                if (keys[mid] == key) found = mid;
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /** @return the first move from begin to end; the notation of a move,
+     * and so the book, does not tell captures with the same ends apart. */
+    private static Move find(List<Move> moves, int begin, int end) {
+        for (Move m : moves) {
+            if (m.getBeginField() == begin && m.getEndField() == end) return m;
+        }
+        return null;
+    }
+
+    /**
+     * reads a book written by save().
+     * @param file the book file
+     * @return the book
+     * @throws IOException if the file can not be read, is no book file, or
+     *         has other Zobrist keys
+     */
+    static OpeningBook load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not an opening book file: " + file);
+            }
+            boolean killerRules = in.readBoolean();
+            if (in.readLong() != new DraughtsState().getHashKey()) {
+                throw new IOException("opening book with other Zobrist keys: " + file);
+            }
+            int n = in.readInt();
+            long[] keys = new long[n];
+            int[] begins = new int[n], ends = new int[n], games = new int[n], points = new int[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = in.readLong();
+                begins[i] = in.readUnsignedByte();
+                ends[i] = in.readUnsignedByte();
+                games[i] = in.readUnsignedShort();
+                points[i] = in.readUnsignedShort();
+            }
+            return new OpeningBook(killerRules, keys, begins, ends, games, points);
+        }
+    }
+
+    /**
+     * writes the book to a file that load() can read.
+     * @param file the book file
+     * @throws IOException if the file can not be written
+     */
+    void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(killerRules);
+            out.writeLong(new DraughtsState().getHashKey());
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                out.writeLong(keys[i]);
+                out.writeByte(begins[i]);
+                out.writeByte(ends[i]);
+                // scaled down to 16 bits, keeping the score
+                int g = Math.min(games[i], 0xffff);
+                out.writeShort(g);
+                out.writeShort((int) ((long) points[i] * g / games[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package nl.tue.s2id90.group93;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+
+/**
+ * Builds an OpeningBook from recorded games: the games are replayed for
+ * their first plies, and for every position, by its Zobrist key, and every
+ * move played in it, the number of games and the points of the player who
+ * played the move are counted. Moves that were played in too few games are
+ * left out.
+ *
+ * <p>The games are read from the PDN files OfflineTournament writes, or from
+ * its roundrobin.zip. TI_v2 uses the book with <code>-Dti.book=FILE</code>.
+ *
+ * <p>Usage: <code>OpeningBookBuilder [options] file...</code>, with options
+ * <ul>
+ * <li><code>-out FILE</code>: book file to write, default ti-book.bin;</li>
+ * <li><code>-plies N</code>: number of opening plies of each game that are used, default 20;</li>
+ * <li><code>-min N</code>: least number of games of a move in the book, default 2;</li>
+ * <li><code>-international</code>: the games were played with international rules.</li>
+ * </ul>
+ * @see OpeningBook#load(Path)
+ */
+public class OpeningBookBuilder {
+    private final int plies;
+    private final boolean killerRules;
+
+    /** per position key: per move (begin * 64 + end) the games and points. */
+    private final Map<Long, Map<Integer, int[]>> positions = new HashMap<>();
+    private int games, skipped;
+
+    /**
+     * @param plies       number of opening plies of each game that are used
+     * @param killerRules whether the games were played with killer rules
+     */
+    OpeningBookBuilder(int plies, boolean killerRules) {
+        this.plies = plies;
+        this.killerRules = killerRules;
+    }
+
+    /** adds the games of a PDN file or a zip file with PDN files.
+     * @throws IOException if the file can not be read */
+    void read(Path file) throws IOException {
+        PdnGames.read(file, this::addGame);
+    }
+
+    /** replays the first plies of a game and counts its moves. */
+    private void addGame(List<String> moves, double result) {
+        if (result < 0) {
+            skipped++;
+            return;
+        }
+        games++;
+        BoardState bs = new BoardState(10, 10);
+        bs.setBegin();
+        DraughtsState s = new DraughtsState(bs, killerRules);
+        for (int ply = 0; ply < Math.min(plies, moves.size()) && !s.isEndState(); ply++) {
+            Move move = PdnGames.find(s.getMoves(), moves.get(ply));
+            if (move == null) {
+                if (!moves.get(ply).equals("null")) {
+                    System.err.println("illegal move " + moves.get(ply) + ", rest of game skipped");
+                }
+                return;
+            }
+            double score = s.isWhiteToMove() ? result : 1 - result;
+            int[] stats = positions.computeIfAbsent(s.getHashKey(), k -> new HashMap<>())
+                    .computeIfAbsent(move.getBeginField() * 64 + move.getEndField(), k -> new int[2]);
+            stats[0]++;
+            stats[1] += (int) Math.round(2 * score);
+            s.doMove(move);
+        }
+    }
+
+    /** @return the book of the moves that were played in at least minGames games. */
+    OpeningBook build(int minGames) {
+        List<long[]> entries = new ArrayList<>();
+        positions.forEach((key, moves) -> moves.forEach((move, stats) -> {
+            if (stats[0] >= minGames) {
+                entries.add(new long[] {key, move, stats[0], stats[1]});
+            }
+        }));
+        // by key, then the most played moves first
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+        int n = entries.size();
+        long[] keys = new long[n];
+        int[] begins = new int[n], ends = new int[n], counts = new int[n], points = new int[n];
+        for (int i = 0; i < n; i++) {
+            long[] e = entries.get(i);
+            keys[i] = e[0];
+            begins[i] = (int) e[1] / 64;
+            ends[i] = (int) e[1] % 64;
+            counts[i] = (int) e[2];
+            points[i] = (int) e[3];
+        }
+        return new OpeningBook(killerRules, keys, begins, ends, counts, points);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path out = Paths.get("ti-book.bin");
+        int plies = 20, minGames = 2;
+        boolean killerRules = true;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-out":           out = Paths.get(args[++i]); break;
+                case "-plies":         plies = Integer.parseInt(args[++i]); break;
+                case "-min":           minGames = Integer.parseInt(args[++i]); break;
+                case "-international": killerRules = false; break;
+                default:               files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: OpeningBookBuilder [-out FILE] [-plies N] [-min N] [-international] file...");
+            System.exit(1);
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, killerRules);
+        for (Path file : files) builder.read(file);
+        OpeningBook book = builder.build(minGames);
+        book.save(out);
+        System.out.format("%d games (%d without result), %d positions, %d moves in the book written to %s\n",
+                builder.games, builder.skipped, builder.positions.size(), book.size(), out);
+    }
+}
@@ -0,0 +1,331 @@
+package nl.tue.s2id90.group93;
+
+import static nl.tue.s2id90.group93.IncrementalEvaluation.BALANCE_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.CENTER_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.DEFENDER_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.FORMATION_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.MATERIAL_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.TEMPI_WEIGHT;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import nl.tue.s2id90.draughts.BoardGeometry;
+import nl.tue.s2id90.draughts.DraughtsState;
+
+/**
+ * Evaluation by table lookup. The board is split in small regions; the piece
+ * codes (DraughtsState.EMPTY..BLACKKING) on the five fields of a region form
+ * a number in base 5, which is the index in the score table of that region.
+ * <ul>
+ * <li>each row: the material, center, tempi and defender value of its
+ *     pieces; one table per row, since the values depend on the field.</li>
+ * <li>each field with four neighbours, together with those neighbours: the
+ *     formations with that field in the middle; one table for all of them.</li>
+ * <li>the left/right balance of white and of black, which the row patterns
+ *     also count: one table indexed by both balances.</li>
+ * </ul>
+ *
+ * <p>The standard tables give the value of TI_v2.evaluateForWhite; tables
+ * with other values, e.g. from a tuner, are read with load(). The tables
+ * must not be changed once they are used by a search; all values are for
+ * white.
+ */
+class PatternEvaluation {
+    /** number of different piece codes, the base of the indices. */
+    static final int CODES = 5;
+
+    /** number of fields in a region. */
+    static final int REGION_FIELDS = 5;
+
+    /** number of indices of a region: CODES^REGION_FIELDS. */
+    static final int PATTERNS = 3125;
+
+    /** largest absolute balance: there are 25 fields on either side. */
+    static final int MAX_BALANCE = 25;
+
+    /** first int of a table file, "TIPE". */
+    private static final int MAGIC = 0x54495045;
+
+    /** system property with the name of the table file TI_v2 loads. */
+    static final String FILE_PROPERTY = "ti.patterns";
+
+    //<editor-fold defaultstate="collapsed" desc="geometry">
+    /** VALUE[code]: men count 1, kings 3; black pieces are negative. */
+    static final int[] VALUE = {0, 1, -1, 3, -3};
+
+    /** SIDE[f]: -1 for a field on the left, +1 for a field on the right,
+     * as TI_v2.balanceValue decides it. */
+    private static final int[] SIDE = new int[51];
+
+    /** ROW_POWER[f]: weight of field f in the index of its row. */
+    static final int[] ROW_POWER = new int[51];
+
+    /** the fields with four neighbours, i.e. the middles of the patches. */
+    static final int[] MIDDLES;
+
+    /** PATCHES[f]: the middles of the patches that contain field f, and
+     * PATCH_POWER[f][k] the weight of f in the index of patch PATCHES[f][k]. */
+    static final int[][] PATCHES = new int[51][], PATCH_POWER = new int[51][];
+
+    /** WHITE_SIDE[r][i], BLACK_SIDE[r][i]: balance of the white and black
+     * pieces of pattern i in row r. */
+    static final byte[][] WHITE_SIDE = new byte[10][PATTERNS], BLACK_SIDE = new byte[10][PATTERNS];
+
+    static {
+        int middles = 0;
+        for (int f = 1; f <= 50; f++) {
+            int column = f % 10 == 0 ? 10 : f % 10;
+            SIDE[f] = column == 1 || column == 2 || column == 6
+                    || column == 7 || column == 8 ? -1 : 1;
+            ROW_POWER[f] = power((f - 1) % REGION_FIELDS);
+            if (BoardGeometry.neighbours(f).length == 4) middles++;
+        }
+        MIDDLES = new int[middles];
+        int[] count = new int[51];
+        for (int f = 1, i = 0; f <= 50; f++) {
+            int[] n = BoardGeometry.neighbours(f);
+            if (n.length == 4) {
+                MIDDLES[i++] = f;
+                count[f]++;
+                for (int g : n) count[g]++;
+            }
+        }
+        for (int f = 1; f <= 50; f++) {
+            PATCHES[f] = new int[count[f]];
+            PATCH_POWER[f] = new int[count[f]];
+            count[f] = 0;
+        }
+        for (int m : MIDDLES) {
+            addToPatch(m, m, power(0), count);
+            int[] n = BoardGeometry.neighbours(m);
+            for (int k = 0; k < 4; k++) {
+                addToPatch(n[k], m, power(k + 1), count);
+            }
+        }
+        for (int r = 0; r < 10; r++) {
+            for (int i = 0; i < PATTERNS; i++) {
+                int white = 0, black = 0;
+                for (int k = 0; k < REGION_FIELDS; k++) {
+                    int v = VALUE[digit(i, k)];
+                    int f = 5 * r + k + 1;
+                    if (v > 0) white += SIDE[f]; else if (v < 0) black += SIDE[f];
+                }
+                WHITE_SIDE[r][i] = (byte) white;
+                BLACK_SIDE[r][i] = (byte) black;
+            }
+        }
+    }
+
+    private static void addToPatch(int f, int middle, int power, int[] count) {
+        PATCHES[f][count[f]] = middle;
+        PATCH_POWER[f][count[f]++] = power;
+    }
+
+    /** @return CODES^k */
+    private static int power(int k) {
+        int p = 1;
+        while (k-- > 0) p *= CODES;
+        return p;
+    }
+
+    /** @return the piece code on the k-th field of pattern i. */
+    static int digit(int i, int k) {
+        return i / power(k) % CODES;
+    }
+    //</editor-fold>
+
+    private static PatternEvaluation standard, loaded;
+
+    /** rows[r][i]: value of pattern i in row r. */
+    final int[][] rows = new int[10][PATTERNS];
+
+    /** patches[i]: value of the patch with index i. */
+    final int[] patches = new int[PATTERNS];
+
+    /** balance[w+MAX_BALANCE][b+MAX_BALANCE]: value of white balance w and
+     * black balance b. */
+    final int[][] balance = new int[2 * MAX_BALANCE + 1][2 * MAX_BALANCE + 1];
+
+    private PatternEvaluation() { }
+
+    /** @return tables with the weights of IncrementalEvaluation, which give
+     * the same value as TI_v2.evaluateForWhite. */
+    static synchronized PatternEvaluation standard() {
+        if (standard == null) {
+            standard = withWeights(MATERIAL_WEIGHT, CENTER_WEIGHT, TEMPI_WEIGHT,
+                    BALANCE_WEIGHT, DEFENDER_WEIGHT, FORMATION_WEIGHT);
+        }
+        return standard;
+    }
+
+    /** @return the tables in the file named by system property ti.patterns;
+     * the standard tables if it is not set or the file can not be read. */
+    static synchronized PatternEvaluation getDefault() {
+        if (loaded == null) {
+            String file = System.getProperty(FILE_PROPERTY);
+            loaded = standard();
+            if (file != null) {
+                try {
+                    loaded = load(Paths.get(file));
+                } catch (IOException ex) {
+                    System.err.println("using standard evaluation: " + ex);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * builds the tables of the evaluation of TI_v2.evaluateForWhite with the
+     * given weights of its terms.
+     * @return the tables
+     */
+    static PatternEvaluation withWeights(int material, int center, int tempi,
+            int balance, int defender, int formation) {
+        PatternEvaluation e = new PatternEvaluation();
+        for (int r = 0; r < 10; r++) {
+            for (int i = 0; i < PATTERNS; i++) {
+                int value = 0;
+                for (int k = 0; k < REGION_FIELDS; k++) {
+                    int v = VALUE[digit(i, k)];
+                    int f = 5 * r + k + 1;
+                    value += material * v;
+                    if (BoardGeometry.contains(BoardGeometry.CENTER, f)) {
+                        value += center * v;
+                    }
+                    if (v > 0) {
+                        value += tempi * v * ((50 - f) / 5 + 1);
+                        if (f > 45) value += defender * v;
+                    } else if (v < 0) {
+                        value += tempi * v * ((f - 1) / 5 + 1);
+                        if (f < 6) value += defender * v;
+                    }
+                }
+                e.rows[r][i] = value;
+            }
+        }
+        for (int i = 0; i < PATTERNS; i++) {
+            e.patches[i] = formation * formations(i);
+        }
+        for (int w = -MAX_BALANCE; w <= MAX_BALANCE; w++) {
+            for (int b = -MAX_BALANCE; b <= MAX_BALANCE; b++) {
+                e.balance[w + MAX_BALANCE][b + MAX_BALANCE] =
+                        balance * (Math.abs(w) - Math.abs(b));
+            }
+        }
+        return e;
+    }
+
+    /** @return the number of formations with the middle of patch i in the
+     * middle; negative for black formations. See TI_v2.formationValue.
+     */
+    private static int formations(int i) {
+        int sign = Integer.signum(VALUE[digit(i, 0)]);
+        if (sign == 0) return 0;
+        boolean topleft = Integer.signum(VALUE[digit(i, 1)]) == sign;
+        boolean topright = Integer.signum(VALUE[digit(i, 2)]) == sign;
+        boolean bottomleft = Integer.signum(VALUE[digit(i, 3)]) == sign;
+        boolean bottomright = Integer.signum(VALUE[digit(i, 4)]) == sign;
+        int count = (topleft && bottomright ? 1 : 0)   // diagonals
+                + (topright && bottomleft ? 1 : 0)
+                + (bottomleft && bottomright ? 1 : 0)  // pyramid
+                + (topleft && topright ? 1 : 0);       // upside down pyramid
+        return sign * count;
+    }
+
+    /** @return the index of row r. */
+    static int rowIndex(int[] pieces, int r) {
+        int index = 0;
+        for (int f = 5 * r + 1; f <= 5 * r + 5; f++) {
+            index += pieces[f] * ROW_POWER[f];
+        }
+        return index;
+    }
+
+    /** @return the index of the patch with field m in the middle. */
+    static int patchIndex(int[] pieces, int m) {
+        int[] n = BoardGeometry.neighbours(m);
+        return pieces[m] + CODES * (pieces[n[0]] + CODES * (pieces[n[1]]
+                + CODES * (pieces[n[2]] + CODES * pieces[n[3]])));
+    }
+
+    /** @return the value of the given balances. */
+    int balanceValue(int white, int black) {
+        return balance[white + MAX_BALANCE][black + MAX_BALANCE];
+    }
+
+    /**
+     * evaluates a board with one lookup per region.
+     * @param pieces board as returned by DraughtsState.getPieces()
+     * @return the value for white
+     */
+    int value(int[] pieces) {
+        int value = 0, white = 0, black = 0;
+        for (int r = 0; r < 10; r++) {
+            int i = rowIndex(pieces, r);
+            value += rows[r][i];
+            white += WHITE_SIDE[r][i];
+            black += BLACK_SIDE[r][i];
+        }
+        for (int m : MIDDLES) {
+            value += patches[patchIndex(pieces, m)];
+        }
+        return value + balanceValue(white, black);
+    }
+
+    /** @return the value of state for white; see value(int[]). */
+    int value(DraughtsState state) {
+        return value(state.getPieces());
+    }
+
+    /**
+     * reads tables written by save().
+     * @param file the table file
+     * @return the tables
+     * @throws IOException if the file can not be read or is no table file
+     */
+    static PatternEvaluation load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != PATTERNS
+                    || in.readInt() != MAX_BALANCE) {
+                throw new IOException("not a pattern table file: " + file);
+            }
+            PatternEvaluation e = new PatternEvaluation();
+            for (int[] row : e.rows) read(in, row);
+            read(in, e.patches);
+            for (int[] b : e.balance) read(in, b);
+            return e;
+        }
+    }
+
+    /**
+     * writes the tables to a file that load() can read.
+     * @param file the table file
+     * @throws IOException if the file can not be written
+     */
+    void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(PATTERNS);
+            out.writeInt(MAX_BALANCE);
+            for (int[] row : rows) write(out, row);
+            write(out, patches);
+            for (int[] b : balance) write(out, b);
+        }
+    }
+
+    private static void read(DataInputStream in, int[] a) throws IOException {
+        for (int i = 0; i < a.length; i++) a[i] = in.readInt();
+    }
+
+    private static void write(DataOutputStream out, int[] a) throws IOException {
+        for (int v : a) out.writeInt(v);
+    }
+}
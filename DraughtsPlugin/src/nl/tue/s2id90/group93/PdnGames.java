@@ -0,0 +1,89 @@
+package nl.tue.s2id90.group93;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org10x10.dam.game.Move;
+
+/**
+ * Reads recorded games from the PDN files OfflineTournament writes, or from
+ * its roundrobin.zip, which has them in pdns/. Used by EvaluationTuner and
+ * OpeningBookBuilder.
+ */
+final class PdnGames {
+    private PdnGames() { }
+
+    /**
+     * reads the games in a PDN file or in a zip file with PDN files.
+     * @param file  the file
+     * @param games gets the moves of every game, in PDN notation, and its
+     *              result for white: 1, 0.5, 0, or -1 if it is not known
+     * @throws IOException if the file can not be read
+     */
+    static void read(Path file, BiConsumer<List<String>, Double> games) throws IOException {
+        if (file.toString().endsWith(".zip")) {
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(file))) {
+                for (ZipEntry e; (e = zip.getNextEntry()) != null; ) {
+                    if (e.getName().endsWith(".pdn")) {
+                        // the reader must not close the zip
+                        String pdn = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                        readGames(new StringReader(pdn), games);
+                    }
+                }
+            }
+        } else {
+            try (Reader in = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+                readGames(in, games);
+            }
+        }
+    }
+
+    /** reads the games in PDN as OfflineTournament writes them: tags, of
+     * which Result is used, followed by the moves and a "*". */
+    private static void readGames(Reader reader, BiConsumer<List<String>, Double> games) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        double result = -1;
+        List<String> moves = new ArrayList<>();
+        for (String line; (line = in.readLine()) != null; ) {
+            line = line.trim();
+            if (line.startsWith("[")) {
+                if (!moves.isEmpty()) {
+                    games.accept(moves, result);
+                    moves = new ArrayList<>();
+                }
+                if (line.startsWith("[Result ")) {
+                    String[] r = line.replaceAll("[^0-9-]", "").split("-");
+                    int r0 = Integer.parseInt(r[0]), r1 = Integer.parseInt(r[1]);
+                    result = r0 + r1 == 0 ? -1 : (double) r0 / (r0 + r1);
+                }
+            } else {
+                for (String token : line.split("\\s+")) {
+                    // strip the move number, as in " 1.32-28"; it is a
+                    // token of its own before a padded move, as in "26. 5-10"
+                    String move = token.substring(token.indexOf('.') + 1);
+                    if (!move.isEmpty() && !move.equals("*")) moves.add(move);
+                }
+            }
+        }
+        if (!moves.isEmpty()) games.accept(moves, result);
+    }
+
+    /** @return the move with the given notation; notations of moves from
+     * and to fields below 10 are padded with spaces, which PDN drops. */
+    static Move find(List<Move> moves, String notation) {
+        for (Move m : moves) {
+            if (m.getNotation().trim().equals(notation)) return m;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package nl.tue.s2id90.group93;
+
+import java.util.ArrayList;
+import java.util.List;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Preallocated per-ply storage for a depth first search: one DraughtsNode
+ * (holding the best move slot) and one move list per ply. All nodes share
+ * the state of the root, which the search changes with doMove/undoMove.
+ * After the first iterations of a search no new nodes or lists are needed,
+ * so the search itself does not allocate.
+ */
+class SearchStack {
+    /** initial capacity of a move list; lists grow when needed. */
+    private static final int MOVES_PER_PLY = 64;
+
+    private DraughtsNode[] nodes = new DraughtsNode[0];
+    private final List<List<Move>> moves = new ArrayList<>();
+
+    /**
+     * prepares this stack for a search of the given depth from root; node(0)
+     * is root itself.
+     */
+    void prepare(DraughtsNode root, int depth) {
+        DraughtsState state = root.getState();
+        if (nodes.length > 1 && nodes[1].getState() != state) {
+            for (int ply = 1; ply < nodes.length; ply++) {
+                nodes[ply] = new DraughtsNode(state);
+            }
+        }
+        if (nodes.length == 0) nodes = new DraughtsNode[] {root};
+        nodes[0] = root;
+        ensure(depth + 1);
+    }
+
+    /**
+     * makes node(ply) and moves(ply) available, e.g. for a quiescence search
+     * that goes deeper than the depth given to prepare.
+     */
+    void ensure(int ply) {
+        if (ply < nodes.length && ply < moves.size()) return;
+        DraughtsState state = nodes[0].getState();
+        DraughtsNode[] old = nodes;
+        nodes = new DraughtsNode[Math.max(ply + 1, 2 * old.length)];
+        System.arraycopy(old, 0, nodes, 0, old.length);
+        for (int i = old.length; i < nodes.length; i++) {
+            nodes[i] = new DraughtsNode(state);
+        }
+        while (moves.size() < nodes.length) {
+            moves.add(new ArrayList<>(MOVES_PER_PLY));
+        }
+    }
+
+    /** @return the node at the given ply. */
+    DraughtsNode node(int ply) {
+        return nodes[ply];
+    }
+
+    /** @return the move list of the given ply, filled with the moves of the
+     * state at that ply.
+     */
+    List<Move> moves(int ply) {
+        List<Move> list = moves.get(ply);
+        nodes[ply].getState().getMoves(list);
+        return list;
+    }
+}
@@ -1,11 +1,26 @@
 package nl.tue.s2id90.group93;
 
 import static java.lang.Integer.MAX_VALUE;
-import static java.lang.Integer.MIN_VALUE;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.BALANCE_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.CENTER_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.DEFENDER_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.FORMATION_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.MATERIAL_WEIGHT;
+import static nl.tue.s2id90.group93.IncrementalEvaluation.TEMPI_WEIGHT;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.draughts.BoardGeometry;
 import nl.tue.s2id90.draughts.DraughtsState;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.SearchStatistics;
+import nl.tue.s2id90.game.TimeBudget;
 import org10x10.dam.game.Move;
 
 
@@ -13,52 +28,236 @@ import org10x10.dam.game.Move;
 //       for your player during the tournament
 // Implementation made by Tommie Kerssies and Ivo Zenden
 public class TI_v2 extends DraughtsPlayer{
-    private int bestValue=0;
+    /** ways to use more than one search thread. */
+    public enum Parallelism {
+        /** helpers share a transposition table; fast, but not reproducible. */
+        LAZY_SMP,
+        /** young brothers wait fork-join search; same result as one thread. */
+        YBWC
+    }
+    
+    /** value of the last move for white; null if it is not known, as for
+     * a move from the opening book. */
+    private Integer bestValue=0;
+    
+    /** statistics of the running search; counted by this thread only. */
+    private SearchStatistics statistics = new SearchStatistics();
+    
+    /** statistics of the last finished search. */
+    private volatile SearchStatistics lastStatistics;
     int maxSearchDepth;
     
-    /** boolean that indicates that the GUI asked the player to stop thinking. */
-    private boolean stopped;
+    /** boolean that indicates that the GUI asked the player to stop thinking.
+     * Volatile, since it is also set for helpers that run in other threads. */
+    private volatile boolean stopped;
+    
+    /** transposition table, kept between moves: 2^18 buckets, 8MB. 
+     * Shared with the helpers. */
+    private final TranspositionTable tt;
+    
+    /** preallocated nodes and move lists, one per ply; each helper has its own. */
+    private final SearchStack stack = new SearchStack();
+    
+    /** hash move, killers and history; each helper has its own. */
+    private final MoveOrdering ordering = new MoveOrdering();
+    
+    /** half width of the first aspiration window: the material value of two
+     * pieces, which gave the fewest nodes on a set of test positions. */
+    static final int ASPIRATION_WINDOW = 2 * IncrementalEvaluation.MATERIAL_WEIGHT;
+    
+    /** whether or not principal variation search is used: all moves but the
+     * first are searched with a null window first. */
+    boolean pvs = true;
+    
+    /** half width of the first aspiration window of an iteration; 0 to search
+     * every iteration with a full window. */
+    int aspirationWindow = ASPIRATION_WINDOW;
+    
+    /** lazy SMP: helpers search the same position in other threads, and
+     * only communicate with this player through the shared tt. */
+    private final TI_v2[] helpers;
+    
+    /** id of a helper: 1..helpers.length; 0 for the player itself. */
+    private final int id;
+    
+    /** threads that run the helpers; created on the first move. Idle threads
+     * end, so that a player that is no longer used keeps no threads. */
+    private ExecutorService pool;
+    
+    /** deterministic parallel search; null unless Parallelism.YBWC is used. */
+    private final YoungBrothersWaitSearch ybwc;
+    
+    /** tables of the evaluation; shared with the helpers. */
+    private final PatternEvaluation patterns;
+    
+    /** value of a position that the endgame database knows to be won in 0
+     * plies from the root; a win in d plies is worth d less, so that the
+     * search prefers the shortest win. Larger than any evaluation. */
+    static final int ENDGAME_WIN = 1_000_000;
+    
+    /** values within this many plies of ENDGAME_WIN are endgame wins. */
+    private static final int ENDGAME_PLIES = 10_000;
+    
+    /** returned by probeEndgame() when the database does not know the position. */
+    static final int NO_ENDGAME = Integer.MIN_VALUE;
+    
+    /** endgame database for the rules of the current game; null if there
+     * is none, see EndgameDatabase.getDefault(). Shared with the helpers. */
+    private EndgameDatabase endgames;
+    
+    /** whether or not the current iteration reached its depth somewhere; if
+     * every line ended in the endgame database or at the end of the game, a
+     * deeper iteration finds the same value. */
+    private boolean horizon;
 
     public TI_v2(int maxSearchDepth) {
+        this(maxSearchDepth, 1);
+    }
+    
+    /**
+     * @param maxSearchDepth
+     * @param threads number of search threads; with more than one thread,
+     *        threads-1 helpers search in parallel with the player (lazy SMP).
+     */
+    public TI_v2(int maxSearchDepth, int threads) {
+        this(maxSearchDepth, threads, Parallelism.LAZY_SMP);
+    }
+    
+    /**
+     * @param maxSearchDepth
+     * @param threads number of search threads
+     * @param parallelism how the threads are used when there is more than one
+     * @see PatternEvaluation#getDefault() the evaluation tables that are used
+     */
+    public TI_v2(int maxSearchDepth, int threads, Parallelism parallelism) {
+        this(maxSearchDepth, threads, parallelism, PatternEvaluation.getDefault());
+    }
+    
+    /**
+     * @param maxSearchDepth
+     * @param threads number of search threads
+     * @param parallelism how the threads are used when there is more than one
+     * @param patterns tables of the evaluation, e.g. tuned ones
+     */
+    TI_v2(int maxSearchDepth, int threads, Parallelism parallelism,
+            PatternEvaluation patterns) {
         super("checkers-king.png"); // Done: replace with your own icon
         this.maxSearchDepth = maxSearchDepth;
+        this.tt = new TranspositionTable(18);
+        this.id = 0;
+        this.patterns = patterns;
+        boolean smp = threads > 1 && parallelism == Parallelism.LAZY_SMP;
+        helpers = new TI_v2[smp ? threads-1 : 0];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new TI_v2(this, i+1);
+        }
+        ybwc = threads > 1 && parallelism == Parallelism.YBWC
+                ? new YoungBrothersWaitSearch(this, threads) : null;
+    }
+    
+    /** creates helper number id of player main. */
+    private TI_v2(TI_v2 main, int id) {
+        super("checkers-king.png");
+        this.maxSearchDepth = main.maxSearchDepth;
+        this.tt = main.tt;
+        this.id = id;
+        this.patterns = main.patterns;
+        this.helpers = new TI_v2[0];
+        this.ybwc = null;
     }
     
     @Override public Move getMove(DraughtsState s) {
+        return getMove(s, null);
+    }
+    
+    /** searches until stopped, or, with a budget, until the next iteration
+     * is not expected to finish in time.
+     * @param s state
+     * @param budget time for this move; null if the player is only stopped
+     * @see TimeManager
+     */
+    @Override public Move getMove(DraughtsState s, TimeBudget budget) {
         Move bestMove = null;
         bestValue = 0;
-        DraughtsNode node = new DraughtsNode(s.clone());    // the root of the search tree
+        // a stop is cleared when its move is finished; one that still
+        // arrived later is ignored when this move has time left, while a
+        // stop of this move itself can only arrive at its deadline
+        if (budget != null && !budget.hasPassed()) clearStop();
+        TimeManager time = budget == null ? null : new TimeManager(budget);
+        long start = System.nanoTime(), iterationStart = start;
+        statistics = new SearchStatistics();
+        endgames = EndgameDatabase.getDefault(s.isUsingKillerRules());
+        
+        // in a known opening, play a move from the book without searching
+        OpeningBook book = OpeningBook.getDefault();
+        Move bookMove = book == null ? null : book.choose(s, ThreadLocalRandom.current());
+        if (bookMove != null) {
+            bestValue = null;
+            return withoutSearch(bookMove, "opening book");
+        }
+        
+        // with few pieces the database knows the best move
+        Move endgameMove = endgames == null ? null : endgames.bestMove(s);
+        if (endgameMove != null) {
+            DraughtsState child = s.clone();
+            child.doMove(endgameMove);
+            int value = probeEndgame(child, 1);
+            bestValue = child.isWhiteToMove() ? value : -value;
+            return withoutSearch(endgameMove, "endgame database");
+        }
+        
+        // search on a bitboard copy of s, its move generation is much faster
+        // and it keeps the evaluation up to date while moves are done
+        DraughtsNode node = new DraughtsNode(new EvaluatedDraughtsState(s, patterns));
+        tt.newSearch();
+        ordering.newSearch();
+        Future<?>[] running = startHelpers(node.getState());
         try {
             //We moved the iterative deepening here, since at the previous location
             //the full deepening had to end before the best move was set
             //meaning no moves were set if the deepening wasn't finished
             
             int depth = 1;
+            int val = 0;
             //in an announcement it was mentioned that we shouldn't include a max
             //limit on the depth, so therefore no guard on the while statement
             while (true) {
-                // compute bestMove and bestValue in a call to alphabeta
-                int val = alphaBeta(node, MIN_VALUE, MAX_VALUE, depth);
+                // compute bestMove and bestValue in a call to alphabeta,
+                // with a window around the value of the previous iteration
+                horizon = ybwc != null;   // the parallel search does not report it
+                val = aspirationSearch(node, depth, val);
                 
                 //needed since bestmove would be set to null
                 if (node.getBestMove() != null) {
-                    // store the value corresponding to the best move
-                    bestValue = val;
+                    // store the value corresponding to the best move; the
+                    // search is relative to the player to move, the GUI
+                    // shows values for white
+                    bestValue = s.isWhiteToMove() ? val : -val;
                     
                     // store the bestMove found uptill now
                     bestMove  = node.getBestMove();
-
-                    // print the results for debugging reasons
-                    System.err.format(
-                        "%s: depth= %2d, best move = %5s, value=%d\n", 
-                        this.getClass().getSimpleName(), depth, bestMove, bestValue
-                    );
                 }
+                long now = System.nanoTime();
+                statistics.iterationFinished(depth, now - iterationStart);
+                iterationStart = now;
+                
+                // do not start an iteration that will be stopped anyway
+                if (time != null && !time.startNextIteration(bestMove)) break;
+                if (!horizon && bestMove != null) break;
                 
                 // increase depth
                 depth++;
             }
         } catch (AIStoppedException ex) {  /* nothing to do */  }
+        stopHelpers(running);
+        if (ybwc != null) ybwc.finish();
+        clearStop();
+        statistics.searchFinished(System.nanoTime() - start);
+        lastStatistics = statistics;
+        
+        // print the results for debugging reasons
+        System.err.format("%s: best move = %5s, value=%d, %s\n",
+                this.getClass().getSimpleName(), bestMove, bestValue, statistics);
         
         if (bestMove==null) {
             System.err.println("no valid move found!");
@@ -68,6 +267,20 @@ public class TI_v2 extends DraughtsPlayer{
         }
     } 
 
+    /** finishes a move that was not searched: there are no statistics of
+     * it, so that the totals of a game or tournament only count searches.
+     * @param move   the move that is played
+     * @param source where the move comes from
+     * @return move
+     */
+    private Move withoutSearch(Move move, String source) {
+        clearStop();
+        lastStatistics = null;
+        System.err.format("%s: best move = %5s, value=%s, from the %s\n",
+                this.getClass().getSimpleName(), move, getValue(), source);
+        return move;
+    }
+
     /** This method's return value is displayed in the AICompetition GUI.
      * 
      * @return the value for the draughts state s as it is computed in a call to getMove(s). 
@@ -75,12 +288,125 @@ public class TI_v2 extends DraughtsPlayer{
     @Override public Integer getValue() { 
        return bestValue;
     }
+    
+    /** @return statistics of the last search, including its helpers or
+     * the YBWC threads; null for a move that was not searched. */
+    @Override public SearchStatistics getStatistics() {
+        return lastStatistics;
+    }
 
     /** Tries to make alphabeta search stop. Search should be implemented such that it
      * throws an AIStoppedException when boolean stopped is set to true;
     **/
     @Override public void stop() {
        stopped = true; 
+       for (TI_v2 helper : helpers) {
+           helper.stop();
+       }
+       if (ybwc != null) ybwc.stop();
+    }
+    
+    /** forgets a stop that arrived after the search it was meant for. */
+    private void clearStop() {
+        stopped = false;
+        if (ybwc != null) ybwc.clearStop();
+    }
+    
+    /** searches the root with an aspiration window around the value of
+     * the previous iteration, which is widened on a fail low or fail high.
+     * @param node     root
+     * @param depth    depth of the iteration
+     * @param previous value of the previous iteration
+     * @return the value of node; its best move is set in node.
+     */
+    int aspirationSearch(DraughtsNode node, int depth, int previous)
+            throws AIStoppedException {
+        boolean decided = Math.abs(previous) == MAX_VALUE;
+        if (aspirationWindow == 0 || depth <= 2 || decided) {
+            return search(node, -MAX_VALUE, MAX_VALUE, depth);
+        }
+        long delta = aspirationWindow;
+        long alpha = previous - delta, beta = previous + delta;
+        while (true) {
+            int a = (int) Math.max(-MAX_VALUE, alpha);
+            int b = (int) Math.min(MAX_VALUE, beta);
+            int val = search(node, a, b, depth);
+            if (val <= a && a > -MAX_VALUE) {        // fail low
+                delta *= 4;
+                alpha = val - delta;
+            } else if (val >= b && b < MAX_VALUE) {  // fail high
+                delta *= 4;
+                beta = val + delta;
+            } else {
+                return val;
+            }
+        }
+    }
+    
+    /** searches the root with the given window, with YBWC when it is used. */
+    private int search(DraughtsNode node, int alpha, int beta, int depth)
+            throws AIStoppedException {
+        return ybwc != null
+                ? ybwc.search(node, alpha, beta, depth, statistics)
+                : alphaBeta(node, alpha, beta, depth);
+    }
+    
+    /** starts all helpers on their own clone of state s.
+     * @return the running helper tasks
+     */
+    private Future<?>[] startHelpers(DraughtsState s) {
+        Future<?>[] running = new Future<?>[helpers.length];
+        if (helpers.length > 0 && pool == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    helpers.length, helpers.length, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, getName() + "-helper");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            pool = executor;
+        }
+        for (int i = 0; i < helpers.length; i++) {
+            TI_v2 helper = helpers[i];
+            DraughtsState clone = s.clone();
+            helper.stopped = false;   // ignore a late stop of the previous move
+            helper.statistics = new SearchStatistics();
+            helper.endgames = endgames;
+            helper.ordering.newSearch();
+            running[i] = pool.submit(() -> helper.searchAsHelper(clone));
+        }
+        return running;
+    }
+    
+    /** stops the helpers and waits until they are finished. */
+    private void stopHelpers(Future<?>[] running) {
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].stop();
+        }
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                System.err.println("helper failed: " + ex);
+            }
+        }
+        for (TI_v2 helper : helpers) {
+            statistics.addCounters(helper.statistics);
+        }
+    }
+    
+    /** iterative deepening of a helper until it is stopped. Odd helpers start
+     * one ply deeper, so that not all threads search the same depth. Results
+     * only reach the player through the shared transposition table.
+     */
+    private void searchAsHelper(DraughtsState s) {
+        DraughtsNode node = new DraughtsNode(s);
+        try {
+            for (int depth = 1 + id % 2; ; depth++) {
+                alphaBeta(node, -MAX_VALUE, MAX_VALUE, depth);
+            }
+        } catch (AIStoppedException ex) {  /* stopped by the player */  }
     }
     
     /** returns random valid move in state s, or null if no moves exist. */
@@ -90,31 +416,27 @@ public class TI_v2 extends DraughtsPlayer{
         return moves.isEmpty()? null : moves.get(0);
     }
     
-    /** Implementation of alphabeta that automatically chooses the white player
-     *  as maximizing player and the black player as minimizing player.
+    /** Negamax alphabeta search of node: values are relative to the player
+     *  that is to move in node.
      * @param node contains DraughtsState and has field to which the best move can be assigned.
-     * @param alpha
+     * @param alpha at least -MAX_VALUE, so that it can be negated
      * @param beta
      * @param depth maximum recursion Depth
-     * @return the computed value of this node
+     * @return the computed value of this node, for the player to move
      * @throws AIStoppedException
      **/
     int alphaBeta(DraughtsNode node, int alpha, int beta, int depth)
             throws AIStoppedException
     {
         //removed iterative deepening here, moved to "getMove" function
-        int value = 0;
-        
-        if (node.getState().isWhiteToMove()) {
-            value = alphaBetaMax(node, alpha, beta, depth);
-        } else  {
-            value = alphaBetaMin(node, alpha, beta, depth);
-        }
-        return value;
+        stack.prepare(node, depth);
+        return negamax(node, alpha, beta, depth, 0);
     }
     
-    /** Does a minimize alphabeta computation with the given alpha and beta
-     * where the player that is to move in node is the minimizing player.
+    /** Does a negamax alphabeta computation with the given alpha and beta,
+     * which are, like the result, relative to the player that is to move in
+     * node: that player maximizes, and the value of a child is minus its
+     * value for the opponent.
      * 
      * <p>Typical pieces of code used in this method are:
      *     <ul> <li><code>DraughtsState state = node.getState()</code>.</li>
@@ -127,118 +449,212 @@ public class TI_v2 extends DraughtsPlayer{
      * @param alpha
      * @param beta
      * @param depth  maximum recursion Depth
+     * @param ply    distance to the root; node is stack.node(ply)
      * @return the compute value of this node
      * @throws AIStoppedException thrown whenever the boolean stopped has been set to true.
      */
-     int alphaBetaMin(DraughtsNode node, int alpha, int beta, int depth)
+    int negamax(DraughtsNode node, int alpha, int beta, int depth, int ply)
             throws AIStoppedException {
         if (stopped) { stopped = false; throw new AIStoppedException(); }
+        statistics.nodes++;
+        if (ply > statistics.selDepth) statistics.selDepth = ply;
         DraughtsState state = node.getState();
         
-        //added: if no possible moves also stop
-        if (depth == 0 || state.getMoves().isEmpty()) {
+        // the endgame database knows the exact value; not at the root, which needs a move
+        if (ply > 0 && endgames != null) {
+            int value = probeEndgame(state, ply);
+            if (value != NO_ENDGAME) return clamp(value, alpha, beta);
+        }
+        
+        //added: if no possible moves, also stop
+        List<Move> moves = stack.moves(ply);
+        if (depth == 0 || moves.isEmpty()) {
+            if (depth == 0) horizon = true;
+            // a leaf in the middle of a capture sequence is searched further
+            if (!moves.isEmpty() && moves.get(0).isCapture()) {
+                return quiesce(state, moves, alpha, beta, ply);
+            }
             int value = evaluate(state);
             return value;
         }
         
-        List<Move> moves = state.getMoves();
+        // a deep enough tt entry may already determine the value of this node
+        long entry = tt.probe(state.getHashKey());
+        statistics.ttProbes++;
+        if (entry != TranspositionTable.MISS) statistics.ttHits++;
+        if (ply > 0 && tt.isCutoff(entry, depth, alpha, beta)) {
+            horizon = true;   // the entry may have been searched to its depth
+            return clamp(fromTable(TranspositionTable.score(entry), ply), alpha, beta);
+        }
+        int alphaOrig = alpha;
+        
+        // hash move first: from the tt, or at the root from the previous iteration
+        Move hashMove = entry != TranspositionTable.MISS
+                ? TranspositionTable.move(entry, moves)
+                : ply == 0 ? node.getBestMove() : null;
+        ordering.order(moves, hashMove, ply);
         
         //set first move as best, in case of timeout
         node.setBestMove(moves.get(0));
         
         //found that repeatedly removing the first item is quite slow (since the
         //position of the other items also has to be changed), so we decided to 
-        //replace this with an for each loop (which results in cleaner code as well)
-        for (Move move: moves) {
+        //replace this with a loop over the moves; it uses an index, so that
+        //the search does not create an iterator in every node
+        for (int i = 0; i < moves.size(); i++) {
+            Move move = moves.get(i);
             state.doMove(move); //try move
-            DraughtsNode newNode = new DraughtsNode(state);
-            int result = alphaBetaMax(newNode, alpha, beta, depth-1); //recurse
+            DraughtsNode newNode = stack.node(ply + 1);
+            int result;
+            if (i == 0 || !pvs) {
+                result = -negamax(newNode, -beta, -alpha, depth-1, ply + 1); //recurse
+            } else {
+                // null window: only prove that move is not better than alpha,
+                // and search it again when it is
+                result = -negamax(newNode, -alpha - 1, -alpha, depth-1, ply + 1);
+                if (result > alpha && result < beta) {
+                    result = -negamax(newNode, -beta, -alpha, depth-1, ply + 1);
+                }
+            }
             state.undoMove(move); //undo move
             
-            if (result < beta) {   //not <= in case of the pruning
+            if (result > alpha) {   //not >= in case of the pruning
                 node.setBestMove(move);
-                beta = result;
+                alpha = result;
             }
-            if (beta <= alpha) {
-                return alpha;
+
+            if (alpha >= beta) {
+                cutoff(i, move, ply, depth);
+                return store(node, depth, ply, alphaOrig, beta, beta);
             }
         }
-        return beta;
-     }
+
+        return store(node, depth, ply, alphaOrig, beta, alpha);
+    }
     
-    /** Does a maximize alphabeta computation with the given alpha and beta
-     * where the player that is to move in node is the minimizing player.
-     * 
-     * <p>Typical pieces of code used in this method are:
-     *     <ul> <li><code>DraughtsState state = node.getState()</code>.</li>
-     *          <li><code> state.doMove(move); .... ; state.undoMove(move);</code></li>
-     *          <li><code>node.setBestMove(bestMove);</code></li>
-     *          <li><code>if(stopped) { stopped=false; throw new AIStoppedException(); }</code></li>
-     *     </ul>
-     * </p>
-     * @param node contains DraughtsState and has field to which the best move can be assigned.
-     * @param alpha
-     * @param beta
-     * @param depth  maximum recursion Depth
-     * @return the compute value of this node
+    /** Quiescence search: searches all capture sequences from a leaf of the
+     * main search in which a capture is mandatory, and evaluates the positions
+     * where they end. Since captures are mandatory in draughts, the side to
+     * move can not stand pat. Fail-hard negamax, like negamax.
+     * @param state  state at the given ply
+     * @param moves  the moves in state, all captures
+     * @param ply    distance to the root
+     * @return the value of state for the player to move
      * @throws AIStoppedException thrown whenever the boolean stopped has been set to true.
      */
-     int alphaBetaMax(DraughtsNode node, int alpha, int beta, int depth)
+    private int quiesce(DraughtsState state, List<Move> moves, int alpha, int beta, int ply)
             throws AIStoppedException {
         if (stopped) { stopped = false; throw new AIStoppedException(); }
-        DraughtsState state = node.getState();
-        
-        //added: if no possible moves, also stop
-        if (depth == 0 || state.getMoves().isEmpty()) {
-            int value = evaluate(state);
-            return value;
-        }
-        
-        List<Move> moves = state.getMoves();
-        
-        //set first move as best, in case of timeout
-        node.setBestMove(moves.get(0));
-        
-        //found that repeatedly removing the first item is quite slow (since the
-        //position of the other items also has to be changed), so we decided to 
-        //replace this with an for each loop (which results in cleaner code as well)
-        for (Move move: moves) {
-            state.doMove(move); //try move
-            DraughtsNode newNode = new DraughtsNode(state);
-            int result = alphaBetaMin(newNode, alpha, beta, depth-1); //recurse
-            state.undoMove(move); //undo move
-            
-            if (result > alpha) {   //not >= in case of the pruning
-                node.setBestMove(move);
+        statistics.qnodes++;
+        if (ply > statistics.selDepth) statistics.selDepth = ply;
+        stack.ensure(ply + 1);
+        for (int i = 0; i < moves.size(); i++) {
+            Move move = moves.get(i);
+            state.doMove(move);
+            List<Move> replies = stack.moves(ply + 1);
+            int result = replies.isEmpty() || !replies.get(0).isCapture()
+                    ? -evaluate(state)
+                    : -quiesce(state, replies, -beta, -alpha, ply + 1);
+            state.undoMove(move);
+            if (result > alpha) {
                 alpha = result;
             }
-
             if (alpha >= beta) {
                 return beta;
             }
         }
-
         return alpha;
     }
+    
+    /** stores the fail-hard value of node, searched with window
+     * (alpha,beta), in the transposition table.
+     * @return value
+     */
+    private int store(DraughtsNode node, int depth, int ply, int alpha, int beta, int value) {
+        tt.store(node.getState().getHashKey(), depth,
+                TranspositionTable.bound(value, alpha, beta), toTable(value, ply), node.getBestMove());
+        return value;
+    }
+    
+    /** @return value of a node at the given ply as it is stored in the
+     * transposition table: an endgame win or loss counts its plies from the
+     * node instead of from the root, so that it holds at any ply. */
+    static int toTable(int value, int ply) {
+        if (value > ENDGAME_WIN - ENDGAME_PLIES && value <= ENDGAME_WIN) return value + ply;
+        if (value < -ENDGAME_WIN + ENDGAME_PLIES && value >= -ENDGAME_WIN) return value - ply;
+        return value;
+    }
+    
+    /** @return the value at the given ply of a score stored by toTable. */
+    static int fromTable(int score, int ply) {
+        if (score > ENDGAME_WIN - ENDGAME_PLIES && score <= ENDGAME_WIN) return score - ply;
+        if (score < -ENDGAME_WIN + ENDGAME_PLIES && score >= -ENDGAME_WIN) return score + ply;
+        return score;
+    }
+    
+    /** counts a beta cutoff by move number i of a node, and remembers move
+     * for the ordering of other nodes. */
+    private void cutoff(int i, Move move, int ply, int depth) {
+        statistics.betaCutoffs++;
+        if (i == 0) statistics.firstMoveCutoffs++;
+        ordering.cutoff(move, ply, depth);
+    }
+    
+    static int clamp(int value, int alpha, int beta) {
+        return Math.max(alpha, Math.min(beta, value));
+    }
+    
+    /**
+     * looks state up in the endgame database.
+     * @param ply distance of state to the root
+     * @return ENDGAME_WIN minus the plies from the root to the win, minus
+     *         that for a loss, or 0 for a draw, for the player to move;
+     *         NO_ENDGAME if there is no database or it does not know state.
+     */
+    int probeEndgame(DraughtsState state, int ply) {
+        if (endgames == null) return NO_ENDGAME;
+        // one lookup for result and distance; for a bitboard state it does not allocate
+        int entry = endgames.entry(state);
+        switch (EndgameDatabase.result(entry)) {
+            case EndgameDatabase.WIN:
+                return ENDGAME_WIN - (ply + EndgameDatabase.distance(entry));
+            case EndgameDatabase.LOSS:
+                return -ENDGAME_WIN + (ply + EndgameDatabase.distance(entry));
+            case EndgameDatabase.DRAW:
+                return 0;
+            default:
+                return NO_ENDGAME;
+        }
+    }
 
 
-    /** A method that evaluates the given state. */
     /**
-     * Evaluates the state using various evaluation factors
+     * Evaluates the state for the player that is to move, as negamax needs.
      * @param state the state to be evaluated
-     * @return the value of the state
+     * @return the value of the state for the player to move
      */
-    int evaluate(DraughtsState state) {            
-        //added: if end state give minimal value for white and max for black
-        //since game winning moves always have to be taken
+    int evaluate(DraughtsState state) {
+        //added: an end state is lost for the player to move, since game
+        //winning moves always have to be taken; -MAX_VALUE, not MIN_VALUE,
+        //so that it can be negated
         if (state.isEndState()) {
-            if (state.isWhiteToMove()) {
-                return MIN_VALUE;
-            } else {
-                return MAX_VALUE;
-            }
+            return -MAX_VALUE;
         }
-        
+        //the search keeps the value up to date in its own state, other
+        //states are looked up in the pattern tables region by region
+        int value = state instanceof EvaluatedDraughtsState
+                ? ((EvaluatedDraughtsState) state).getEvaluation().value()
+                : patterns.value(state);
+        return state.isWhiteToMove() ? value : -value;
+    }
+
+    /**
+     * Evaluates the state using various evaluation factors, term by term;
+     * the standard PatternEvaluation tables are built to give the same value.
+     * @param state the state to be evaluated, not an end state
+     * @return the value of the state for white
+     */
+    int evaluateForWhite(DraughtsState state) {
         int[] pieces = state.getPieces();
         int[] p = new int[pieces.length];
 
@@ -304,8 +720,12 @@ public class TI_v2 extends DraughtsPlayer{
         
         //total value 
         //10 4 3 4 5 4 finishes tests
-        int total_value = 10 * material_value + 7 * center_value + 4 * tempi_value
-                        + 4 * balance_value + 5 * defender_value + 6 * formation_value;
+        int total_value = MATERIAL_WEIGHT * material_value
+                        + CENTER_WEIGHT * center_value
+                        + TEMPI_WEIGHT * tempi_value
+                        + BALANCE_WEIGHT * balance_value
+                        + DEFENDER_WEIGHT * defender_value
+                        + FORMATION_WEIGHT * formation_value;
 //        int total_value = 6 * material_value + 3 * center_value + 3 * tempi_value
 //                        + 2 * safe_value + 1 * loner_value + 2 * holes_value;
         return total_value;
@@ -400,14 +820,10 @@ public class TI_v2 extends DraughtsPlayer{
      */
     int centerValue(int[] p) {
         int center_value = 0;
-        //center means row between 2 and 7 (exclusive)
-        //and columns 2, 3, 8 and 9
+        //center means rows 3 to 6 and columns 3 to 6 (counting from 0)
         for (int i = 1; i < p.length; i++) {
-            if (i > 15 && i < 36) { //rows 3, 4, 5, 6
-                if (i % 10 == 2 || i % 10 == 3 ||
-                        i % 10 == 8 || i % 10 == 9) { //columns 2, 3, 8, 9
-                    center_value = center_value + p[i];
-                }
+            if (BoardGeometry.contains(BoardGeometry.CENTER, i)) {
+                center_value = center_value + p[i];
             }
         }
         return center_value;
@@ -423,7 +839,7 @@ public class TI_v2 extends DraughtsPlayer{
         
         for (int i = 0; i < p.length; i++) {
             if (p[i] != 0) { //don't care about empty spaces
-                int[] neighbours = neighborSquares(i);
+                int[] neighbours = BoardGeometry.neighbours(i);
                 
                 //piece can have 1, 2 or 4 neighbours
                 //can only have formation if piece has 4 neighbours
@@ -547,7 +963,7 @@ public class TI_v2 extends DraughtsPlayer{
         for(int i = 1; i < p.length; i ++) {
             boolean loner = true;
             boolean white = p[i] == 1 || p[i] == 3;
-            int[] neighbors = neighborSquares(i); //get neighbor squares of piece
+            int[] neighbors = BoardGeometry.neighbours(i); //get neighbor squares of piece
             for(int k = 0; k < neighbors.length; k++) {
                 if (white) {
                     if (p[neighbors[k]] == 1 || p[neighbors[k]] == 3) { //check for white neighbors
@@ -577,7 +993,7 @@ public class TI_v2 extends DraughtsPlayer{
         for(int i = 1; i < p.length; i ++) {
             int white_neighbors = 0;
             int black_neighbors = 0;
-            int[] neighbors = neighborSquares(i);
+            int[] neighbors = BoardGeometry.neighbours(i);
             
             if (p[i] == 0) {
                 for(int k = 0; k < neighbors.length; k++) {
@@ -597,66 +1013,4 @@ public class TI_v2 extends DraughtsPlayer{
         }
         return holes_value;
     }
-
-    /** Computes the neighbor squares of a given piece
-     * This is a support method for loner and holes value
-     * @param i contains the location of the piece whose neighbors we want to know
-     * @return the list of indices of the neighboring squares
-     */
-    int[] neighborSquares(int i) {
-        //find row
-        int row = ((i-1)/5) + 1; //final +1 is to get rows from 1-10 for rows 1-10
-        //find column
-        int column = i % 10; //have columns 0 - 9
-        if (column == 0) {column = 10;} //columns 1-10
-
-        //determine number of neighbors, can have 1, 2, or 4
-        int num_neighbors = 0;
-        if (row == 1 || row == 10) {
-            num_neighbors += 1; //has 1 neighbouring row
-        } else {
-            num_neighbors += 2; //has 2 neighbouring rows
-        }
-        if (column == 5 || column == 6) { //has 1 neighbouring column
-            //stays the same
-        } else { //has 2 neighbouring columns
-            num_neighbors = num_neighbors * 2;
-        }
-
-        //create neighbors array
-        int[] neighbors = new int[num_neighbors];
-
-        if (num_neighbors == 1) { //corner cases, only 2 possibilities
-            if (i == 5) { //i = 5
-                neighbors[0] = 10;
-            } else { // i = 46
-                neighbors[0] = 41;
-            }
-        } else if (num_neighbors == 2) { //edge cases, easier without corners
-            if (column < 5) { //i = 1-4
-                neighbors[0] = i + 5;
-                neighbors[1] = i + 6;
-            } else if (column > 6) { //i = 47-50
-                neighbors[0] = i - 6;
-                neighbors[1] = i - 5;
-            } else { //i = 6, 16, 26, 36, 15, 25, 35, 45
-                neighbors[0] = i - 5;
-                neighbors[1] = i + 5;
-            }
-        } else { //center cases
-            if (column > 6) {
-                neighbors[0] = i - 6; //top left
-                neighbors[1] = i - 5; //top right
-                neighbors[2] = i + 4; //bottom left
-                neighbors[3] = i + 5; //bottom right
-            } else if (column < 5) {
-                neighbors[0] = i - 5; //top left
-                neighbors[1] = i - 4; //top right
-                neighbors[2] = i + 5; //bottom left
-                neighbors[3] = i + 6; //bottom right
-            }
-        }
-        return neighbors;
-    }
 }
-
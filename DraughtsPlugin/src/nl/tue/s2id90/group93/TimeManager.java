@@ -0,0 +1,58 @@
+package nl.tue.s2id90.group93;
+
+import nl.tue.s2id90.game.TimeBudget;
+import org10x10.dam.game.Move;
+
+/**
+ * Decides after each iteration of iterative deepening whether or not the next
+ * iteration is started. An iteration that is stopped is thrown away, so an
+ * iteration that is not expected to finish before the deadline is not
+ * started. With a game clock, a move normally gets its share of the clock,
+ * and more when the best move changed in the last iteration.
+ */
+class TimeManager {
+    /** number of moves the game clock is divided over. */
+    static final int MOVES_TO_GO = 30;
+
+    /** factor by which the time of an unstable move is extended. */
+    static final int UNSTABLE_FACTOR = 2;
+
+    /** bounds of the estimated growth of the time of the next iteration. */
+    static final double MIN_GROWTH = 2, MAX_GROWTH = 8;
+
+    private final long start, hard, soft;
+    private long iterationStart, previousTime = -1;
+    private Move previousBest;
+
+    /**
+     * @param budget deadline and clock of this move
+     */
+    TimeManager(TimeBudget budget) {
+        start = iterationStart = System.nanoTime();
+        hard = budget.getDeadlineNanos();
+        soft = budget.hasClock()
+                ? Math.min(hard, start + budget.getClockNanos() / MOVES_TO_GO)
+                : hard;
+    }
+
+    /**
+     * called when an iteration is finished.
+     * @param best best move of that iteration
+     * @return whether or not the next iteration is expected to finish in time.
+     */
+    boolean startNextIteration(Move best) {
+        long now = System.nanoTime();
+        long time = now - iterationStart;
+        double growth = previousTime > 0
+                ? Math.max(MIN_GROWTH, Math.min(MAX_GROWTH, (double) time / previousTime))
+                : MAX_GROWTH;
+        boolean unstable = previousBest != null && !previousBest.equals(best);
+        long limit = unstable
+                ? Math.min(hard, start + UNSTABLE_FACTOR * (soft - start))
+                : soft;
+        previousTime = Math.max(1, time);
+        previousBest = best;
+        iterationStart = now;
+        return now + (long) (growth * time) < limit;
+    }
+}
@@ -0,0 +1,157 @@
+package nl.tue.s2id90.group93;
+
+import java.util.Arrays;
+import java.util.List;
+import org10x10.dam.game.Move;
+
+/**
+ * Fixed-size transposition table stored in a single long[]; there are no
+ * per-entry objects.
+ *
+ * <p>The table consists of a power-of-two number of buckets with two entries
+ * each: the first entry is depth-preferred (only replaced by a deeper search
+ * or by a search of a newer move), the second entry is always replaced.
+ * An entry consists of two longs: the key xor-ed with the data, and the data.
+ * A reader only accepts an entry when (key ^ data) ^ data equals its key, so
+ * entries that are half-written by another thread are ignored and the table
+ * can be shared between search threads without locking.
+ *
+ * <p>Data layout (from least to most significant bit):
+ * score (32), depth (7), bound (2), age (5), move (18).
+ */
+public class TranspositionTable {
+    /** the stored score is the exact value of the position. **/
+    public static final int EXACT = 0;
+    /** the value of the position is at least the stored score. **/
+    public static final int LOWER = 1;
+    /** the value of the position is at most the stored score. **/
+    public static final int UPPER = 2;
+
+    /** returned by probe when the position is not in the table. **/
+    public static final long MISS = -1L;
+
+    private final long[] table;
+    private final int mask;     // number of buckets - 1
+    private int age;
+
+    /**
+     * @param log2Buckets the table has 2^log2Buckets buckets of two entries,
+     *                    that is 32*2^log2Buckets bytes.
+     */
+    public TranspositionTable(int log2Buckets) {
+        table = new long[4 << log2Buckets];
+        mask = (1 << log2Buckets) - 1;
+    }
+
+    /** starts a new search; entries of older searches are replaced first. **/
+    public void newSearch() {
+        age = (age + 1) & 31;
+    }
+
+    /** removes all entries. **/
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+
+    /**
+     * @param key Zobrist key of a position
+     * @return the data stored for key, or MISS when key is not in the table.
+     */
+    public long probe(long key) {
+        int i = index(key);
+        for (int e = i; e < i + 4; e += 2) {
+            long data = table[e + 1];
+            if ((table[e] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * stores the result of a search in the table.
+     * @param key   Zobrist key of the position
+     * @param depth search depth of the result
+     * @param bound one of EXACT, LOWER, UPPER
+     * @param score value of the position
+     * @param move  best move found, may be null
+     */
+    public void store(long key, int depth, int bound, int score, Move move) {
+        long data = (score & 0xFFFFFFFFL)
+                | (long) Math.min(depth, 127) << 32
+                | (long) bound << 39
+                | (long) age << 41
+                | packMove(move) << 46;
+        int i = index(key);
+        long old = table[i + 1];
+        if ((table[i] ^ old) == key || old == 0 || age(old) != age || depth >= depth(old)) {
+            table[i] = key ^ data;       // depth-preferred entry
+            table[i + 1] = data;
+        } else {
+            table[i + 2] = key ^ data;   // always-replace entry
+            table[i + 3] = data;
+        }
+    }
+
+    private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 2;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="entry fields">
+    public static int score(long data) { return (int) data; }
+    public static int depth(long data) { return (int) (data >>> 32) & 127; }
+    public static int bound(long data) { return (int) (data >>> 39) & 3; }
+    private static int age(long data)  { return (int) (data >>> 41) & 31; }
+
+    /**
+     * packs begin field, end field and first captured field of m in 18 bits.
+     * These identify a move among the legal moves of a position, except for
+     * rare captures that only differ in later captured pieces.
+     */
+    static long packMove(Move m) {
+        if (m == null) return 0L;
+        int captured = m.isCapture() ? m.getCapturedField(0) : 0;
+        return m.getBeginField() | m.getEndField() << 6 | captured << 12;
+    }
+
+    /**
+     * @param data  data returned by probe
+     * @param moves legal moves of the position
+     * @return the move in moves that was stored with data, or null.
+     */
+    public static Move move(long data, List<Move> moves) {
+        long packed = data >>> 46;
+        if (packed == 0) return null;
+        for (Move m : moves) {
+            if (packMove(m) == packed) return m;
+        }
+        return null;
+    }
+    //</editor-fold>
+
+    /**
+     * @param data  data returned by probe, or MISS
+     * @param depth remaining search depth of the node
+     * @param alpha
+     * @param beta
+     * @return whether or not data determines the (fail-hard) value of the node
+     *         for this window; that value is then clamp(score(data),alpha,beta).
+     */
+    public boolean isCutoff(long data, int depth, int alpha, int beta) {
+        if (data == MISS || depth(data) < depth) return false;
+        int score = score(data);
+        switch (bound(data)) {
+            case LOWER: if (score < beta) return false; break;
+            case UPPER: if (score > alpha) return false; break;
+            default: break;
+        }
+        return true;
+    }
+
+    /** @return the bound type of a fail-hard result value of a search with
+     * window (alpha,beta).
+     */
+    public static int bound(int value, int alpha, int beta) {
+        return value <= alpha ? UPPER : value >= beta ? LOWER : EXACT;
+    }
+}
@@ -0,0 +1,230 @@
+package nl.tue.s2id90.group93;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.game.SearchStatistics;
+import org10x10.dam.game.Move;
+
+/**
+ * Deterministic parallel alpha-beta search (Young Brothers Wait Concept).
+ *
+ * <p>In every node the first (eldest) move is searched serially. When that
+ * does not give a cutoff, all younger brothers are forked as tasks, each with
+ * its own clone of the state and the window that resulted from the eldest
+ * brother. The results are joined in move order, so the value and best move
+ * do not depend on thread timing. The value is the same as that of a
+ * fixed-depth alpha-beta search without a transposition table; the best move
+ * can differ from that of TI_v2 between equally good moves. On a cutoff the
+ * remaining brothers are aborted.
+ *
+ * Leaves in the middle of a capture sequence are searched further, with the
+ * same quiescence search as TI_v2.
+ *
+ * <p>No transposition table is used, because a shared table would make the
+ * result depend on timing again.
+ */
+class YoungBrothersWaitSearch {
+    /** nodes with less remaining depth are searched serially. */
+    static final int MIN_SPLIT_DEPTH = 3;
+
+    private final TI_v2 player;        // supplies the evaluation function
+    private final int threads;
+    private ForkJoinPool pool;         // workers of the current move, see finish()
+    private volatile boolean stopped;
+    /** nodes and quiescence nodes of the tasks, added once per task. */
+    private final LongAdder nodes = new LongAdder(), qnodes = new LongAdder();
+
+    /**
+     * @param player  player whose evaluation function is used
+     * @param threads number of worker threads
+     */
+    YoungBrothersWaitSearch(TI_v2 player, int threads) {
+        this.player = player;
+        this.threads = threads;
+    }
+
+    /** makes a running search throw an AIStoppedException as soon as possible. */
+    void stop() {
+        stopped = true;
+    }
+
+    /** forgets a stop that arrived after the last search finished. */
+    void clearStop() {
+        stopped = false;
+    }
+
+    /**
+     * searches node with the given window and remaining depth; the window
+     * and the value are relative to the player to move in node.
+     * @param statistics gets the nodes that were searched, also when the
+     *                   search is stopped
+     * @return the fail-hard value of node; its best move is set in node.
+     * @throws AIStoppedException when stop() was called during the search
+     */
+    int search(DraughtsNode node, int alpha, int beta, int depth,
+            SearchStatistics statistics) throws AIStoppedException {
+        if (pool == null) pool = new ForkJoinPool(threads);
+        Task root = new Task(null, node.getState().clone(), alpha, beta, depth, 0);
+        try {
+            int value = pool.invoke(root);
+            node.setBestMove(root.bestMove);
+            return value;
+        } catch (RuntimeException ex) {
+            root.abort();              // makes all remaining tasks finish
+            if (!stopped) throw ex;
+            stopped = false;
+            throw new AIStoppedException();
+        } finally {
+            // aborted tasks that are still running add theirs to the next search
+            statistics.nodes += nodes.sumThenReset();
+            statistics.qnodes += qnodes.sumThenReset();
+        }
+    }
+
+    /** ends the worker threads after a move; a player may be created for a
+     * single game, and is not told when it is no longer used. The next
+     * search starts new threads. */
+    void finish() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /** thrown inside tasks that have to stop. */
+    private static class Aborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Aborted() { super(null, null, false, false); }
+    }
+
+    /** searches one node; forks its younger brothers as new tasks. */
+    @SuppressWarnings("serial")   // tasks are never serialized
+    private class Task extends RecursiveTask<Integer> {
+        private final Task parent;
+        private final DraughtsState state;
+        private final int alpha, beta, depth, ply;
+        private volatile boolean aborted;
+        private Move bestMove;
+        private long nodeCount, qnodeCount;
+
+        Task(Task parent, DraughtsState state, int alpha, int beta, int depth, int ply) {
+            this.parent = parent;
+            this.state = state;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.depth = depth;
+            this.ply = ply;
+        }
+
+        void abort() {
+            aborted = true;
+        }
+
+        /** @return whether or not this task or one of its ancestors is aborted. */
+        boolean isAborted() {
+            for (Task t = this; t != null; t = t.parent) {
+                if (t.aborted) return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected Integer compute() {
+            try {
+                return alphaBeta(state, alpha, beta, depth, ply, true);
+            } finally {
+                // once per task, so that the threads do not share a counter per node
+                nodes.add(nodeCount);
+                qnodes.add(qnodeCount);
+            }
+        }
+
+        /** fail-hard negamax alpha-beta: values are relative to the player
+         * to move in state.
+         * @param ply distance of state to the root
+         * @param top whether or not this is the node of the task itself
+         */
+        private int alphaBeta(DraughtsState state, int alpha, int beta, int depth, int ply, boolean top) {
+            if (stopped || isAborted()) throw new Aborted();
+            nodeCount++;
+            // the endgame database, but not at the root, which needs a move
+            if (parent != null || !top) {
+                int value = player.probeEndgame(state, ply);
+                if (value != TI_v2.NO_ENDGAME) return TI_v2.clamp(value, alpha, beta);
+            }
+            List<Move> moves = state.getMoves();
+            if (depth == 0 || moves.isEmpty()) {
+                return quiesce(state, moves, alpha, beta);
+            }
+            Move best = moves.get(0);
+            int n = moves.size();
+
+            // the eldest brother, and all brothers near the leaves, serially
+            int serial = depth < MIN_SPLIT_DEPTH ? n : 1;
+            for (int i = 0; i < serial; i++) {
+                Move move = moves.get(i);
+                state.doMove(move);
+                int result = -alphaBeta(state, -beta, -alpha, depth - 1, ply + 1, false);
+                state.undoMove(move);
+                if (result > alpha) {
+                    best = move;
+                    alpha = result;
+                }
+                if (alpha >= beta) {
+                    if (top) bestMove = best;
+                    return beta;
+                }
+            }
+
+            // the younger brothers in parallel, all with the same window
+            Task[] brothers = new Task[n - serial];
+            for (int i = serial; i < n; i++) {
+                DraughtsState clone = state.clone();
+                clone.doMove(moves.get(i));
+                brothers[i - serial] = new Task(this, clone, -beta, -alpha, depth - 1, ply + 1);
+                brothers[i - serial].fork();
+            }
+            for (int i = serial; i < n; i++) {
+                int result = -brothers[i - serial].join();
+                if (result > alpha) {
+                    best = moves.get(i);
+                    alpha = result;
+                }
+                if (alpha >= beta) {
+                    for (int j = i + 1 - serial; j < brothers.length; j++) {
+                        brothers[j].abort();
+                    }
+                    if (top) bestMove = best;
+                    return beta;
+                }
+            }
+            if (top) bestMove = best;
+            return alpha;
+        }
+
+        /** the quiescence search of TI_v2: capture sequences are searched
+         * until they end, then the state is evaluated.
+         */
+        private int quiesce(DraughtsState state, List<Move> moves, int alpha, int beta) {
+            if (moves.isEmpty() || !moves.get(0).isCapture()) {
+                return player.evaluate(state);
+            }
+            if (stopped || isAborted()) throw new Aborted();
+            qnodeCount++;
+            for (Move move : moves) {
+                state.doMove(move);
+                int result = -quiesce(state, state.getMoves(), -beta, -alpha);
+                state.undoMove(move);
+                if (result > alpha) {
+                    alpha = result;
+                }
+                if (alpha >= beta) return beta;
+            }
+            return alpha;
+        }
+    }
+}